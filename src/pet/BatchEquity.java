@@ -0,0 +1,221 @@
+package pet;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import pet.eq.*;
+import pet.hp.*;
+
+/**
+ * Headless equity calculation of a file of spots, one per line, e.g.
+ * <pre>
+ * # game draws board blockers hole-cards...
+ * HE 0 Ah7d2c - KhKd QsJs
+ * DSTD 2 - 9c 7c5d4h3s2c 8d6h5s4c2d
+ * </pre>
+ * The game is a Game.Type name, cards are written without spaces, and - is
+ * no cards. Blank lines and lines starting with # are ignored.
+ * <p>
+ * Spots are calculated on a pool of one thread per processor, using the
+ * equity cache, and the result of each spot is written to standard output
+ * in input order as the spot followed by the total equity of each hand (or
+ * the error). Progress and throughput are written to standard error.
+ */
+public class BatchEquity {
+	
+	/** time between progress reports, in milliseconds */
+	private static final long PROGRESS_TIME = 5000;
+	
+	/**
+	 * Run the batch, the arguments are [-v] [file], where -v keeps the logging
+	 * of the equity calculations (on standard error), and the spots are read
+	 * from standard input if there is no file
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean verbose = false;
+		String file = null;
+		for (String arg : args) {
+			if (arg.equals("-v")) {
+				verbose = true;
+			} else if (file == null && !arg.startsWith("-")) {
+				file = arg;
+			} else {
+				throw new RuntimeException("usage: BatchEquity [-v] [file]");
+			}
+		}
+		
+		// standard output is just for results
+		final PrintStream out = System.out;
+		System.setOut(verbose ? System.err : new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				//
+			}
+			@Override
+			public void write(byte[] b, int off, int len) {
+				//
+			}
+		}));
+		
+		try (BufferedReader in = new BufferedReader(file != null ? new FileReader(file) : new InputStreamReader(System.in))) {
+			run(in, out);
+		}
+	}
+	
+	/**
+	 * Calculate the spots read from the reader, writing the results to the
+	 * output in order
+	 */
+	public static void run(final BufferedReader in, final PrintStream out) throws IOException, InterruptedException {
+		final int threads = ThreadUtil.getParallelism();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, "batch");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		
+		// results not yet written, enough to keep every thread busy while
+		// waiting for the oldest
+		final Deque<Future<String>> pending = new ArrayDeque<>();
+		final int maxPending = threads * 16;
+		final long start = System.nanoTime();
+		long lastProgress = System.currentTimeMillis();
+		int count = 0, errors = 0;
+		
+		try {
+			String line;
+			while (true) {
+				line = in.readLine();
+				if (line != null) {
+					line = line.trim();
+					if (line.length() == 0 || line.startsWith("#")) {
+						continue;
+					}
+					pending.add(executor.submit(new SpotTask(line)));
+				}
+				
+				// write the finished results, waiting for the oldest if there
+				// are too many or there are no more spots
+				while (pending.size() > 0 && (pending.size() >= maxPending || line == null || pending.peek().isDone())) {
+					final String result = get(pending.remove());
+					if (result.contains(" = error: ")) {
+						errors++;
+					}
+					out.println(result);
+					count++;
+					
+					final long t = System.currentTimeMillis();
+					if (t - lastProgress >= PROGRESS_TIME) {
+						System.err.println(progress(count, errors, start));
+						lastProgress = t;
+					}
+				}
+				
+				if (line == null) {
+					break;
+				}
+			}
+		
+		} finally {
+			executor.shutdownNow();
+			out.flush();
+		}
+		
+		System.err.println(progress(count, errors, start) + ", cache hits " + EquityCache.getHits() + " misses " + EquityCache.getMisses());
+	}
+	
+	private static String get(Future<String> f) throws InterruptedException {
+		try {
+			return f.get();
+		} catch (ExecutionException e) {
+			// spot task catches everything
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	private static String progress(int count, int errors, long start) {
+		final double secs = (System.nanoTime() - start) / 1000000000.0;
+		return String.format("batch: %d spots (%d errors) in %.1f s, %.1f spots/s", count, errors, secs, count / Math.max(secs, 0.001));
+	}
+	
+	/**
+	 * Get the cards of the string of cards without spaces, or - for no cards
+	 */
+	private static List<String> cards(String s) {
+		final List<String> cards = new ArrayList<>();
+		if (!s.equals("-")) {
+			if (s.length() % 2 != 0) {
+				throw new RuntimeException("invalid cards: " + s);
+			}
+			for (int n = 0; n < s.length(); n += 2) {
+				final String card = s.substring(n, n + 2);
+				// check it is a card
+				Poker.intCard(card);
+				cards.add(card);
+			}
+		}
+		return cards;
+	}
+	
+	/**
+	 * Calculate the equity of a spot, returning the result line
+	 */
+	private static class SpotTask implements Callable<String> {
+		
+		private final String line;
+		
+		public SpotTask(String line) {
+			this.line = line;
+		}
+		
+		@Override
+		public String call() {
+			try {
+				final String[] f = line.split("\\s+");
+				if (f.length < 5) {
+					throw new RuntimeException("expected game, draws, board, blockers and at least 2 hands");
+				}
+				final Game.Type type;
+				try {
+					type = Game.Type.valueOf(f[0]);
+				} catch (IllegalArgumentException e) {
+					throw new RuntimeException("invalid game: " + f[0]);
+				}
+				final int draws;
+				try {
+					draws = Integer.parseInt(f[1]);
+				} catch (NumberFormatException e) {
+					throw new RuntimeException("invalid draws: " + f[1]);
+				}
+				final List<String> board = GameUtil.getBoard(type) > 0 ? cards(f[2]) : null;
+				if (board == null && !f[2].equals("-")) {
+					throw new RuntimeException("game has no board: " + f[2]);
+				}
+				final List<String> blockers = cards(f[3]);
+				final List<String[]> hands = new ArrayList<>();
+				for (int n = 4; n < f.length; n++) {
+					final List<String> hand = cards(f[n]);
+					hands.add(hand.toArray(new String[hand.size()]));
+				}
+				
+				final MEquity[] meqs = GameUtil.getPoker(type).equity(board, hands, blockers, draws);
+				final StringBuilder sb = new StringBuilder(line).append(" =");
+				for (MEquity meq : meqs) {
+					sb.append(String.format(" %.2f", meq.totaleq));
+					if (!meq.exact) {
+						sb.append(String.format("+/-%.2f", meq.ci));
+					}
+				}
+				return sb.toString();
+			
+			} catch (Exception e) {
+				return line + " = error: " + e.getMessage();
+			}
+		}
+	}
+
+}
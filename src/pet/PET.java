@@ -1,5 +1,6 @@
 package pet;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 import javax.swing.*;
@@ -28,7 +29,13 @@ public class PET {
 		return history;
 	}
 	
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("-batch")) {
+			// headless, see BatchEquity
+			BatchEquity.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		
 		// os x assumes US locale if system language is english...
 		// user needs to add british english to list of languages in system preferences/language and text
 		System.out.println("locale " + Locale.getDefault());
@@ -40,6 +40,48 @@ public class ArrayUtil {
 		}
 	}
 	
+	/**
+	 * pick an integer from a (max length 63) that hasn't been picked before
+	 * according to picked[0] and update picked[0]
+	 */
+	public static int pick(Random r, int[] a, long[] picked) {
+		if (a.length > 63) {
+			throw new RuntimeException("array is longer than 63");
+		}
+		if (picked[0] >= ((1L << a.length) - 1)) {
+			throw new RuntimeException("none left to pick");
+		}
+		while (true) {
+			int i = r.nextInt(a.length);
+			long m = 1L << i;
+			if ((picked[0] & m) == 0) {
+				picked[0] |= m;
+				return a[i];
+			}
+		}
+	}
+	
+	/**
+	 * shuffle integer array
+	 */
+	public static void shuffle(int[] a, Random r) {
+		shuffle(a, a.length, r);
+	}
+	
+	/**
+	 * shuffle only the first c values of integer array (partial fisher-yates),
+	 * i.e. pick c random values without replacement. the other values are left
+	 * in some other order.
+	 */
+	public static void shuffle(int[] a, int c, Random r) {
+		for (int n = 0; n < c; n++) {
+			int x = r.nextInt(a.length - n) + n;
+			int t = a[n];
+			a[n] = a[x];
+			a[x] = t;
+		}
+	}
+	
 	/**
 	 * shuffle array
 	 */
@@ -21,9 +21,9 @@ public class Badugi {
 	 * 4 = most significant (highest) card
 	 * 3,2,1 = less significant cards
 	 * 
-	 * NOTE: badugi valuation is not very efficient, due to its use of multiple
-	 * arrays. the best alternative is to pack the cards into an integer, but
-	 * that is very fiddly and not really worth the effort at this time
+	 * the values of every 4 card hand are calculated once from the face and
+	 * suit bit masks of each subset of the cards, and then looked up by the
+	 * combination index of the hand
 	 */
 	
 	/** unachievable worst value */
@@ -41,26 +41,45 @@ public class Badugi {
 			"B4", "B5", "B6", "B7", "B", "3", "2/1"
 	};
 	
-	/** three combinations of two card hands (one of [0] or [1], plus [2]) */
-	private static final byte[][] V2 = { 
-		{ 0, 1, 2 }, 
-		{ 0, 2, 1 }, 
-		{ 1, 2, 0 } 
-	};
-	
+	/** number of 4 card hands */
+	private static final int HANDS = 270725;
+	/** binomial coefficients (n, k) for k = 1 to 4, for the hand index */
+	private static final int[][] C = new int[5][52];
 	/**
-	 * six combinations of 3 card hands (one of [0] or [1], plus [2] and [3]).
-	 * i.e. the first two columns are [0123] pick 2, and the second two are the
-	 * remaining indexes
+	 * value of each 4 card hand (with type bits set), indexed by the
+	 * combination index of the integer cards in ascending order (see index)
 	 */
-	private static final byte[][] V3 = { 
-		{ 0, 1, 2, 3 }, 
-		{ 0, 2, 1, 3 }, 
-		{ 0, 3, 1, 2 }, 
-		{ 1, 2, 0, 3 },
-		{ 1, 3, 0, 2 }, 
-		{ 2, 3, 0, 1 } 
-	};
+	private static final int[] values = new int[HANDS];
+	/** integer card of each bit of a card mask */
+	private static final int[] maskCards = new int[64];
+	
+	static {
+		for (int k = 1; k <= 4; k++) {
+			for (int n = 0; n < 52; n++) {
+				C[k][n] = MathsUtil.binomialCoefficientFast(n, k);
+			}
+		}
+		for (int c = 0; c < 52; c++) {
+			maskCards[Long.numberOfTrailingZeros(Poker.cardMask(c))] = c;
+		}
+		// every hand in combination order
+		final int[] hand = new int[4];
+		int i = 0;
+		for (int c3 = 3; c3 < 52; c3++) {
+			hand[3] = c3;
+			for (int c2 = 2; c2 < c3; c2++) {
+				hand[2] = c2;
+				for (int c1 = 1; c1 < c2; c1++) {
+					hand[1] = c1;
+					for (int c0 = 0; c0 < c1; c0++) {
+						hand[0] = c0;
+						// the values are bigger for worse hands, so invert
+						values[i++] = (B0_RANK - best(hand, 0xf)) | Poker.BADUGI_TYPE;
+					}
+				}
+			}
+		}
+	}
 	
 	public static void main (String[] args) {
 		ArrayList<String> l = new ArrayList<>(Poker.deck);
@@ -78,114 +97,87 @@ public class Badugi {
 		if (hand.length != 4) {
 			throw new RuntimeException("invalid badugi hand: " + Arrays.toString(hand));
 		}
-		// the values are bigger for worse hands, so invert
-		return (B0_RANK - v4(hand)) | Poker.BADUGI_TYPE;
+		return badugiValue(Poker.intCards(hand));
 	}
 	
-	/** get value of 4 card hand */
-	private static int v4 (String[] hand) {
-		int v = B0_RANK;
-		String[] h3 = new String[3];
-		for (int n = 0; n < V3.length; n++) {
-			byte[] p = V3[n];
-			String hp0 = hand[p[0]], hp1 = hand[p[1]], hp2 = hand[p[2]], hp3 = hand[p[3]];
-			if (eq(hp0, hp1)) {
-				// (at least) two cards are equal, can't be B4
-				// try 3 card hand for each of the two cards
-				h3[0] = hp0;
-				h3[1] = hp2;
-				h3[2] = hp3;
-				v = Math.min(v, v3(h3));
-				h3[0] = hp1;
-				v = Math.min(v, v3(h3));
-			}
-		}
-		if (v == B0_RANK) {
-			// no cards are equal
-			// its B4, sort...
-			int[] a = {
-					faceValueAL(hand[0]), faceValueAL(hand[1]), faceValueAL(hand[2]), faceValueAL(hand[3])
-			};
-			ArrayUtil.sort(a);
-			return B4_RANK | (a[3] << 12) | (a[2] << 8) | (a[1] << 4) | a[0];
-		}
-		return v;
-	}
-	
-	/** get value of 3 card hand */
-	private static int v3 (String[] h3) {
-		int v = B0_RANK;
-		for (int n = 0; n < V2.length; n++) {
-			byte[] p = V2[n];
-			String cp0 = h3[p[0]];
-			String cp1 = h3[p[1]];
-			if (eq(cp0, cp1)) {
-				// (at least) two are equal
-				// can't be B3
-				// try 2 card hand for each of the two equal cards
-				String cp2 = h3[p[2]];
-				v = Math.min(v, v2(cp0, cp2));
-				v = Math.min(v, v2(cp1, cp2));
-			}
-		}
-		if (v == B0_RANK) {
-			// it's a B3, sort
-			int[] a = {
-					faceValueAL(h3[0]), faceValueAL(h3[1]), faceValueAL(h3[2])
-			};
-			ArrayUtil.sort(a);
-			v = B3_RANK | (a[2] << 8) | (a[1] << 4) | a[0];
+	/** get value of badugi hand of integer cards */
+	public static final int badugiValue (int[] hand) {
+		if (hand.length != 4) {
+			throw new RuntimeException("invalid badugi hand: " + Arrays.toString(hand));
 		}
-		return v;
+		return value(hand[0], hand[1], hand[2], hand[3]);
 	}
 	
-	/** get value of two card hand */
-	private static int v2 (String c0, String c1) {
-		if (eq(c0, c1)) {
-			// oh dear, both equal, it's a B1
-			return v1(c0);
-			
-		} else {
-			// it's a B2
-			int v0 = faceValueAL(c0);
-			int v1 = faceValueAL(c1);
-			if (v0 > v1) {
-				int t = v0;
-				v0 = v1;
-				v1 = t;
-			}
-			return B2_RANK | (v1 << 4) | v0;
+	/** get value of badugi hand of 4 cards in a card mask */
+	public static final int badugiValue (long mask) {
+		if (Long.bitCount(mask) != 4) {
+			throw new RuntimeException("invalid badugi hand: " + Long.toHexString(mask));
 		}
+		final int c0 = maskCards[Long.numberOfTrailingZeros(mask)];
+		mask &= mask - 1;
+		final int c1 = maskCards[Long.numberOfTrailingZeros(mask)];
+		mask &= mask - 1;
+		final int c2 = maskCards[Long.numberOfTrailingZeros(mask)];
+		mask &= mask - 1;
+		return value(c0, c1, c2, maskCards[Long.numberOfTrailingZeros(mask)]);
 	}
 	
 	/**
-	 * return value of 1 card
+	 * get value of 4 different integer cards from the table, sorting them for
+	 * the index
 	 */
-	private static int v1 (String c0) {
-		return B1_RANK | faceValueAL(c0);
+	private static int value (int a, int b, int c, int d) {
+		int t;
+		if (a > b) { t = a; a = b; b = t; }
+		if (c > d) { t = c; c = d; d = t; }
+		if (a > c) { t = a; a = c; c = t; }
+		if (b > d) { t = b; b = d; d = t; }
+		if (b > c) { t = b; b = c; c = t; }
+		return values[C[1][a] + C[2][b] + C[3][c] + C[4][d]];
 	}
-
+	
 	/**
-	 * return value of variable length hand
+	 * get the value (not inverted, i.e. lower is better) of the best badugi
+	 * of the integer cards selected by the bit mask of hand indexes, i.e. the
+	 * subset with the most cards of different faces and suits, then the
+	 * lowest faces
 	 */
-	private static int v (String[] hand) {
-		switch (hand.length) {
-			case 4:
-				return v4(hand);
-			case 3:
-				return v3(hand);
-			case 2:
-				return v2(hand[0], hand[1]);
-			case 1:
-				return v1(hand[0]);
-			default:
-				throw new RuntimeException("invalid drawing hand: " + Arrays.toString(hand));
+	private static int best (final int[] hand, final int sel) {
+		int v = B0_RANK;
+		for (int s = sel; s > 0; s = (s - 1) & sel) {
+			// faces (ace low) and suits of the subset
+			int faces = 0, suits = 0, k = 0;
+			boolean valid = true;
+			for (int i = 0; i < hand.length; i++) {
+				if ((s & (1 << i)) != 0) {
+					final int f = 1 << faceAL(hand[i]), su = 1 << (hand[i] & 3);
+					if ((faces & f) != 0 || (suits & su) != 0) {
+						valid = false;
+						break;
+					}
+					faces |= f;
+					suits |= su;
+					k++;
+				}
+			}
+			if (valid) {
+				// faces highest first, 4 bits each
+				int x = 0;
+				for (int f = 13; f >= 1; f--) {
+					if ((faces & (1 << f)) != 0) {
+						x = (x << 4) | f;
+					}
+				}
+				// B1_RANK to B4_RANK
+				v = Math.min(v, (B0_RANK - k * 0x100000) | x);
+			}
 		}
+		return v;
 	}
 	
-	/** return true if the two cards are equal */
-	private static boolean eq (String c1, String c2) {
-		return suit(c1) == suit(c2) || face(c1) == face(c2);
+	/** face of integer card, ace low (A = 1, K = 13) */
+	private static int faceAL (final int c) {
+		return c >= 48 ? 1 : (c >> 2) + 2;
 	}
 	
 	/**
@@ -255,22 +247,37 @@ public class Badugi {
 	
 	/** return the cards making up the best badugi hand, k = 1, 2 or 3 */
 	private static String[] draw2 (String[] hand, int k) {
-		final String[] h = new String[k];
+		if (hand.length != 4) {
+			throw new RuntimeException("invalid badugi hand: " + Arrays.toString(hand));
+		}
+		final int[] cards = Poker.intCards(hand);
+		// hand indexes of each combination of k cards
+		final int[] index = { 0, 1, 2, 3 };
+		final int[] h = new int[k];
 		final int pmax = MathsUtil.binomialCoefficientFast(4, k);
 		int vmin = B0_RANK;
-		int vminp = 0;
-		// find p for worst hand
+		int vminsel = 0;
+		// find the best hand, the first if several are equal
 		for (int p = 0; p < pmax; p++) {
-			MathsUtil.kCombination(k, p, hand, h, 0);
-			int v = v(h);
+			MathsUtil.kCombination(k, p, index, h, 0);
+			int sel = 0;
+			for (int i : h) {
+				sel |= 1 << i;
+			}
+			int v = best(cards, sel);
 			if (v < vmin) {
 				vmin = v;
-				vminp = p;
+				vminsel = sel;
 			}
 		}
 		// get the cards for the winning combination
-		MathsUtil.kCombination(k, vminp, hand, h, 0);
-		return h;
+		final String[] a = new String[k];
+		for (int i = 0, n = 0; i < 4; i++) {
+			if ((vminsel & (1 << i)) != 0) {
+				a[n++] = hand[i];
+			}
+		}
+		return a;
 	}
 	
 }
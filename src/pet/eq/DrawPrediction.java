@@ -5,14 +5,48 @@ import java.util.*;
 
 import static pet.eq.Poker.*;
 
+/**
+ * Predicts the cards kept in draw poker by scoring every possible hold with
+ * the average score of the hands it can make.
+ */
 public class DrawPrediction {
-
+	
+	/** draw score of each high value index for each bias, high scores then low scores */
+	private static final Map<Double, float[][]> scoreTables = new HashMap<>();
+	
+	/**
+	 * Get the draw scores of each high value index (see ValueIndex) for the
+	 * bias, for high (0) and deuce to seven low (1), creating them first if
+	 * necessary
+	 */
+	private static float[][] scoreTables(final double bias) {
+		if (bias < 0.5 || bias > 1.0) {
+			throw new RuntimeException("invalid bias " + bias);
+		}
+		synchronized (scoreTables) {
+			float[][] tables = scoreTables.get(bias);
+			if (tables == null) {
+				final int n = ValueIndex.get(Value.hiValue).size();
+				tables = new float[2][n];
+				for (int p = 0; p < n; p++) {
+					// raise score to some power to bias toward high values
+					// note: for k=x^y, y=log(k)/log(x)... i think
+					final float s = (float) Math.pow((1f * p) / (n - 1f), Math.log(0.5) / Math.log(bias));
+					tables[0][p] = s;
+					// invert score for deuce to seven low
+					tables[1][n - 1 - p] = s;
+				}
+				scoreTables.put(bias, tables);
+			}
+			return tables;
+		}
+	}
+	
 	/**
 	 * get the best drawing hand for the given hand, number drawn and hand valuation.
 	 * optionally returns score of all possible drawing hands.
 	 */
 	public static String[] getDrawingHand(List<Draw> list, String[] hand, int drawn, boolean high, String[] blockers) {
-		System.out.println("get drawing hand: " + Arrays.toString(hand) + " drawn: " + drawn + " blockers: " + Arrays.toString(blockers) + " high: " + high);
 		if (hand.length > 5) {
 			throw new RuntimeException("invalid hand: " + Arrays.toString(hand));
 		}
@@ -32,12 +66,10 @@ public class DrawPrediction {
 				// cheat and increase the draw amount (if necessary)
 				drawn = Math.max(5 - hand2.length, drawn);
 				hand = hand2;
-				System.out.println("hand now: " + Arrays.toString(hand) + " drawn now: " + drawn);
 			}
 		}
 		
 		BigInteger combs = MathsUtil.binomialCoefficient(hand.length, 5 - drawn);
-		System.out.println("combs: " + combs);
 		if (combs.intValue() <= 0) {
 			throw new RuntimeException("invalid combs: " + combs);
 		}
@@ -74,7 +106,11 @@ public class DrawPrediction {
 		final String[] drawnHand = new String[5];
 		final int imax = MathsUtil.binomialCoefficientFast(hand.length, 5 - drawn);
 		final int jmax = MathsUtil.binomialCoefficientFast(deck.length, drawn);
-		System.out.println("imax: " + imax + " jmax: " + jmax);
+		// the score of each high value index, the deuce to seven low value
+		// of a hand is just the inverse of the high value
+		final float[] scores = scoreTables(bias)[high ? 0 : 1];
+		final ValueIndex index = ValueIndex.get(Value.hiValue);
+		final long[] drawMasks = drawMasks(deck, drawn, jmax);
 		
 		String[] maxDrawingHand = null;
 		float maxScore = -1f;
@@ -83,15 +119,15 @@ public class DrawPrediction {
 			Arrays.fill(drawnHand, null);
 			// pick kept from hand
 			MathsUtil.kCombination(5 - drawn, i, hand, drawnHand, 0);
-			//System.out.println("drawnHand: " + Arrays.toString(drawnHand));
-			float score = 0;
+			long kept = 0;
+			for (int n = 0; n < 5 - drawn; n++) {
+				kept |= Poker.cardMask(Poker.intCard(drawnHand[n]));
+			}
 			
+			// score every hand with the drawn cards
+			float score = 0;
 			for (int j = 0; j < jmax; j++) {
-				// pick drawn from deck
-				MathsUtil.kCombination(drawn, j, deck, drawnHand, 5 - drawn);
-				//System.out.println("  drawnHand: " + Arrays.toString(drawnHand));
-				int v = value.value(drawnHand);
-				score += score(v, bias);
+				score += scores[index.index(MaskValue.hiValue(kept | drawMasks[j]))];
 			}
 			
 			float averageScore = score / (1.0f * jmax);
@@ -115,15 +151,45 @@ public class DrawPrediction {
 		return maxDrawingHand;
 	}
 
+	/**
+	 * Get the card masks of each combination of the given number of cards
+	 * from the deck, in the same order as MathsUtil.kCombination
+	 */
+	private static long[] drawMasks(final String[] deck, final int k, final int count) {
+		final long[] deckMasks = new long[deck.length];
+		for (int n = 0; n < deck.length; n++) {
+			deckMasks[n] = Poker.cardMask(Poker.intCard(deck[n]));
+		}
+		final long[] masks = new long[count];
+		final int[] c = new int[k];
+		for (int n = 0; n < k; n++) {
+			c[n] = n;
+		}
+		for (int j = 0; j < count; j++) {
+			long m = 0;
+			for (int n = 0; n < k; n++) {
+				m |= deckMasks[c[n]];
+			}
+			masks[j] = m;
+			
+			// next combination in colex order
+			int i = 0;
+			while (i < k - 1 && c[i] + 1 == c[i + 1]) {
+				c[i] = i;
+				i++;
+			}
+			c[i]++;
+		}
+		return masks;
+	}
+	
 	/**
 	 * get normalised score of hand (i.e. hand value is 0-1), optionally
 	 * inverted. bias is 0.5 to 1, representing how many values are less than
 	 * 0.5, e.g. 0.9 means 90% of values are less than 0.5
 	 */
 	protected static float score(final int value, final double bias) {
-		if (bias < 0.5 || bias > 1.0) {
-			throw new RuntimeException("invalid bias " + bias);
-		}
+		final float[][] tables = scoreTables(bias);
 		
 		// get high value
 		final boolean high;
@@ -143,20 +209,11 @@ public class DrawPrediction {
 				throw new RuntimeException("can't get score of " + Integer.toHexString(value));
 		}
 		
-		final int[] highValues = highValues();
-		int p = Arrays.binarySearch(highValues, highValue);
+		final int p = ValueIndex.get(Value.hiValue).index(highValue);
 		if (p < 0) {
 			throw new RuntimeException("not a high value: " + Integer.toHexString(highValue));
 		}
-		
-		if (!high) {
-			// invert score for deuce to seven low
-			p = highValues.length - 1 - p;
-		}
-		
-		// raise score to some power to bias toward high values
-		// note: for k=x^y, y=log(k)/log(x)... i think
-		return (float) Math.pow((1f * p) / (highValues.length - 1f), Math.log(0.5) / Math.log(bias));
+		return tables[high ? 0 : 1][p];
 	}
 	
 }
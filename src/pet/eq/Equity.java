@@ -79,67 +79,9 @@ public class Equity {
 	/** list of cards and percentage times that card is included in a pick that will make best hand */
 	public final List<Out> outs;
 	
-	// transient stuff
-	
-	/** number of samples won */
-	int woncount;
-	/** number of samples tied */
-	int tiedcount;
-	/** number of people tied with including self */
-	int tiedwithcount;
-	/** winning ranks */
-	final int[] wonrankcount = new int[Poker.RANKS];
-	/** count that each card (as part of group of cards) will make the best hand */
-	final int[] outcount;
-	
 	public Equity(Equity.Type eqtype, boolean hasouts) {
 		this.type = eqtype;
-		this.outcount = hasouts ? new int[52] : null;
 		this.outs = hasouts ? new ArrayList<Out>() : null;
 	}
 	
-	/**
-	 * update percentage won, tied and by rank
-	 */
-	void summariseEquity(int hands) {
-		int wontiedcount = woncount + tiedcount;
-		won = (woncount * 100f) / hands;
-		tied = (tiedcount * 100f) / hands;
-		for (int n = 0; n < wonrankcount.length; n++) {
-			wonrank[n] = wontiedcount != 0 ? (wonrankcount[n] * 100f) / wontiedcount : 0;
-		}
-		
-		total = (woncount * 100f) / hands;
-		//System.out.println("    hands=" + hands + " woncount=" + woncount + " totalpc=" + total);
-		if (tiedcount > 0) {
-			total += (tied * ((tiedcount * 1f) / tiedwithcount));
-			//System.out.println("    hands=" + hands + " woncount=" + woncount + " tiedcount=" + tiedcount + " tiedwithcount=" + tiedwithcount + " totalpc=" + total);
-		}
-	}
-	
-	/**
-	 * Summarise out probabilities for given number of picks from remaining cards
-	 */
-	void summariseOuts(float remCards, float picks, float samples) {
-		if (outcount != null) {
-			// maximum number of times an out can appear (average if sampled)
-			// prob of appearing once is picks/remCards, just multiply by samples
-			// (n,k,s) = (k*s)/n
-			// (52,1,52) = 1,  (52,2,1326) = 51,  (52,3,100000) = 5769 
-			float max = (picks * samples) / remCards;
-			//System.out.println(String.format("sum outs(%f,%f,%f) max=%f", remCards, picks, samples, max));
-			for (int n = 0; n < outcount.length; n++) {
-				int count = outcount[n];
-				if (count > 0) {
-					String card = Poker.indexToCard(n);
-					float pc = (count * 100f) / max;
-					outs.add(new Out(card, pc));
-				}
-			}
-			Collections.sort(outs);
-			Collections.reverse(outs);
-			//System.out.println("outs are " + outs);
-		}
-	}
-	
 }
@@ -0,0 +1,206 @@
+package pet.eq;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide cache of equity calculations, keyed by the game, the sample
+ * policy and seed, the number of draws and the card masks of the board, each
+ * hand and the blockers with the suits canonical (see SuitSymmetry), so
+ * equivalent spots and the same cards in any order share an entry. The least
+ * recently used spots are removed when the cache is full. Thread safe.
+ * <p>
+ * Equities are stored with the suits of the outs canonical, and a copy with
+ * the suits of the spot is returned on each hit, so callers can't change the
+ * cached equities.
+ */
+public class EquityCache {
+	
+	/** maximum number of spots cached */
+	public static final int SIZE = 2000;
+	
+	/** spot (all fields must be equal) */
+	private static final class Key {
+		private final Poker poker;
+		private final SamplePolicy policy;
+		private final long seed;
+		private final int draws;
+		/** canonical masks of board, hands and blockers */
+		private final long[] masks;
+		
+		public Key(Poker poker, int draws, long[] masks) {
+			this.poker = poker;
+			this.policy = poker.getSamplePolicy();
+			this.seed = poker.getSeed();
+			this.draws = draws;
+			this.masks = masks;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Key) {
+				final Key k = (Key) o;
+				return poker == k.poker && policy == k.policy && seed == k.seed && draws == k.draws && Arrays.equals(masks, k.masks);
+			}
+			return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(poker) ^ System.identityHashCode(policy) ^ (int) (seed ^ (seed >>> 32)) ^ (draws * 31) ^ Arrays.hashCode(masks);
+		}
+	}
+	
+	/** equities with canonical outs, in least recently used order */
+	private static final Map<Key, MEquity[]> map = new LinkedHashMap<Key, MEquity[]>(SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, MEquity[]> e) {
+			return size() > SIZE;
+		}
+	};
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * Get the equity of the spot from the cache, or calculate it and add it to
+	 * the cache
+	 */
+	static MEquity[] equity(final Poker poker, final String[] board, final String[][] holeCards, final String[] blockers, final int draws) {
+		final long[] masks = masks(board, holeCards, blockers);
+		if (masks == null) {
+			// let the calculation fail
+			return poker.equity(board, holeCards, blockers, draws);
+		}
+		final int[] perm = SuitSymmetry.canonicalPerm(masks);
+		for (int n = 0; n < masks.length; n++) {
+			masks[n] = SuitSymmetry.permute(masks[n], perm);
+		}
+		final Key key = new Key(poker, draws, masks);
+		
+		final MEquity[] meqs = get(key, inverse(perm));
+		if (meqs != null) {
+			return meqs;
+		}
+		final MEquity[] result = poker.equity(board, holeCards, blockers, draws);
+		put(key, copy(result, perm));
+		return result;
+	}
+	
+	/**
+	 * Get the cached equities with the suits of the outs permuted, or null
+	 */
+	private static MEquity[] get(final Key key, final int[] perm) {
+		final MEquity[] meqs;
+		synchronized (map) {
+			meqs = map.get(key);
+		}
+		if (meqs == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return copy(meqs, perm);
+	}
+	
+	private static void put(final Key key, final MEquity[] meqs) {
+		synchronized (map) {
+			map.put(key, meqs);
+		}
+	}
+	
+	/**
+	 * Get the card masks of the board, each hand and the blockers, or null if
+	 * any are invalid or duplicated
+	 */
+	private static long[] masks(final String[] board, final String[][] holeCards, final String[] blockers) {
+		final long[] masks = new long[holeCards.length + 2];
+		long all = 0;
+		for (int n = 0; n < masks.length; n++) {
+			final String[] cards = n == 0 ? board : n == masks.length - 1 ? blockers : holeCards[n - 1];
+			if (cards != null) {
+				for (String c : cards) {
+					if (c == null) {
+						return null;
+					}
+					final long m = Poker.cardMask(Poker.intCard(c));
+					if ((all & m) != 0) {
+						return null;
+					}
+					masks[n] |= m;
+					all |= m;
+				}
+			}
+		}
+		return masks;
+	}
+	
+	/**
+	 * Get the inverse of the suit permutation
+	 */
+	private static int[] inverse(final int[] perm) {
+		final int[] inv = new int[4];
+		for (int s = 0; s < 4; s++) {
+			inv[perm[s]] = s;
+		}
+		return inv;
+	}
+	
+	/**
+	 * Copy the equities, with the suits of the outs permuted
+	 */
+	private static MEquity[] copy(final MEquity[] meqs, final int[] perm) {
+		final MEquity[] a = new MEquity[meqs.length];
+		for (int h = 0; h < meqs.length; h++) {
+			final MEquity meq = meqs[h];
+			final MEquity c = meq.copy();
+			c.lowPossible = meq.lowPossible;
+			c.totaleq = meq.totaleq;
+			c.scoop = meq.scoop;
+			c.count = meq.count;
+			c.ci = meq.ci;
+			for (int t = 0; t < meq.eqs.length; t++) {
+				final Equity e = meq.eqs[t], ce = c.eqs[t];
+				ce.won = e.won;
+				ce.tied = e.tied;
+				ce.total = e.total;
+				System.arraycopy(e.wonrank, 0, ce.wonrank, 0, e.wonrank.length);
+				if (e.outs != null) {
+					for (Equity.Out o : e.outs) {
+						final int card = Poker.intCard(o.card);
+						ce.outs.add(new Equity.Out(Poker.intCardString((card & ~3) | perm[Poker.intSuit(card)]), o.pc));
+					}
+					// same order as MEquityCounts.summariseOuts
+					Collections.sort(ce.outs);
+					Collections.reverse(ce.outs);
+				}
+			}
+			a[h] = c;
+		}
+		return a;
+	}
+	
+	/** number of spots found in the cache */
+	public static long getHits() {
+		return hits.get();
+	}
+	
+	/** number of spots not found in the cache */
+	public static long getMisses() {
+		return misses.get();
+	}
+	
+	/** number of spots in the cache */
+	public static int size() {
+		synchronized (map) {
+			return map.size();
+		}
+	}
+	
+	/** remove all spots from the cache */
+	public static void clear() {
+		synchronized (map) {
+			map.clear();
+		}
+	}
+	
+}
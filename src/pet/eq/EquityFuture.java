@@ -0,0 +1,198 @@
+package pet.eq;
+
+import java.util.concurrent.*;
+
+/**
+ * An equity calculation running in the background (see Poker.equityAsync).
+ * Sampled calculations check for cancellation and the deadline between
+ * batches of samples, and stop at the deadline with the samples taken so far.
+ * Exact calculations check between parts of the enumeration, so they stop
+ * using the thread pool soon after being cancelled, and fail with a
+ * TimeoutException if not finished by the deadline.
+ */
+public class EquityFuture implements Future<MEquity[]> {
+	
+	/**
+	 * Receives equities of a background calculation, called from the
+	 * calculation thread (not the Swing event thread)
+	 */
+	public interface Listener {
+		/**
+		 * Partial equities of a sampled calculation so far (done is false),
+		 * or the final equities (done is true), or null when done if the
+		 * calculation failed. Not called after the calculation is cancelled.
+		 */
+		public void equityUpdated(EquityFuture f, MEquity[] meqs, boolean done);
+	}
+	
+	/** milliseconds between partial equities */
+	public static final long UPDATE_TIME = 250;
+	
+	private final Poker poker;
+	private final String[] board;
+	private final String[][] holeCards;
+	private final String[] blockers;
+	private final int draws;
+	/** time to stop sampling, or 0 */
+	private final long deadline;
+	private final Listener listener;
+	private final CountDownLatch latch = new CountDownLatch(1);
+	private volatile boolean cancelled;
+	private volatile MEquity[] meqs;
+	private volatile Exception error;
+	
+	EquityFuture(Poker poker, String[] board, String[][] holeCards, String[] blockers, int draws, long deadline, Listener listener) {
+		this.poker = poker;
+		this.board = board;
+		this.holeCards = holeCards;
+		this.blockers = blockers;
+		this.draws = draws;
+		this.deadline = deadline;
+		this.listener = listener;
+	}
+	
+	/**
+	 * Start the calculation in a new thread
+	 */
+	void start() {
+		final Thread t = new Thread("equity") {
+			@Override
+			public void run() {
+				calc();
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+	}
+	
+	private void calc() {
+		MEquity[] result = null;
+		Poker.asyncPolicy.set(new Policy(poker.getSamplePolicy()));
+		try {
+			if (deadline == 0) {
+				result = EquityCache.equity(poker, board, holeCards, blockers, draws);
+			} else {
+				// might not have sampled enough to cache
+				result = poker.equity(board, holeCards, blockers, draws);
+			}
+		} catch (CancellationException e) {
+			if (!cancelled) {
+				// only exact calculations stop for the deadline
+				error = new TimeoutException("exact equity not finished by the deadline");
+			}
+		} catch (Exception e) {
+			error = e;
+		} finally {
+			Poker.asyncPolicy.remove();
+		}
+		if (!cancelled) {
+			meqs = result;
+		}
+		latch.countDown();
+		if (listener != null && !cancelled) {
+			listener.equityUpdated(this, result, true);
+		}
+	}
+	
+	/**
+	 * Cancel the calculation, it stops at the next batch of samples or part of
+	 * the enumeration
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (isDone()) {
+			return false;
+		}
+		cancelled = true;
+		return true;
+	}
+	
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	@Override
+	public boolean isDone() {
+		return cancelled || latch.getCount() == 0;
+	}
+	
+	@Override
+	public MEquity[] get() throws InterruptedException, ExecutionException {
+		if (!cancelled) {
+			latch.await();
+		}
+		return result();
+	}
+	
+	@Override
+	public MEquity[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!cancelled && !latch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return result();
+	}
+	
+	private MEquity[] result() throws ExecutionException {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+		if (error != null) {
+			throw new ExecutionException(error);
+		}
+		return meqs;
+	}
+	
+	/**
+	 * Sample policy of the calculation, which stops for cancellation and the
+	 * deadline and passes on partial equities
+	 */
+	private class Policy extends SamplePolicy {
+		private final SamplePolicy policy;
+		private long updated;
+		
+		public Policy(SamplePolicy policy) {
+			super(policy.targetCI, policy.minSamples, policy.maxSamples, policy.maxTime);
+			this.policy = policy;
+			this.updated = System.currentTimeMillis();
+		}
+		
+		@Override
+		public int next(MEquityCounts counts, long startNanos, int batch) {
+			if (stop(counts.getCount())) {
+				return 0;
+			}
+			final long t = System.currentTimeMillis();
+			if (listener != null && counts.getCount() > 0 && t - updated >= UPDATE_TIME) {
+				listener.equityUpdated(EquityFuture.this, counts.snapshot(), false);
+				updated = t;
+			}
+			return policy.next(counts, startNanos, batch);
+		}
+		
+		@Override
+		public int next(long count, float ci, long startNanos, int batch) {
+			return stop(count) ? 0 : policy.next(count, ci, startNanos, batch);
+		}
+		
+		@Override
+		public void check() {
+			// as if some samples were taken
+			if (stop(1)) {
+				throw new CancellationException();
+			}
+		}
+		
+		/**
+		 * Should sampling stop for the deadline, throws CancellationException
+		 * if cancelled
+		 */
+		private boolean stop(long count) {
+			if (cancelled) {
+				throw new CancellationException();
+			}
+			return deadline > 0 && count > 0 && System.currentTimeMillis() >= deadline;
+		}
+	}
+	
+}
@@ -0,0 +1,200 @@
+package pet.eq;
+
+import java.util.*;
+
+/**
+ * Index of the suit isomorphic classes of hole cards of a given size, e.g.
+ * the 169 hold'em starting hands, so per class values can be kept in arrays.
+ * Every hand is assigned to its class once, when the indexer is created, so
+ * indexing is a table lookup by the combination index of the cards, and
+ * unindexing gets the smallest hand of the class (see SuitSymmetry).
+ * Classes are in order of their smallest card mask.
+ * <p>
+ * Hole cards with a board have far too many classes to index, so they get a
+ * canonical key instead (see key).
+ */
+public class HandIndexer {
+	
+	/** indexers for each number of cards, created when first used */
+	private static final HandIndexer[] indexers = new HandIndexer[6];
+	
+	/**
+	 * Get the indexer for hands of the given number of cards (1-5), creating
+	 * it if this is the first time
+	 */
+	public static HandIndexer get(int cards) {
+		if (cards < 1 || cards > 5) {
+			throw new RuntimeException("invalid number of cards: " + cards);
+		}
+		synchronized (indexers) {
+			if (indexers[cards] == null) {
+				indexers[cards] = new HandIndexer(cards);
+			}
+			return indexers[cards];
+		}
+	}
+	
+	/**
+	 * Get a key of the hole cards (up to 5) and board (up to 5) that is the
+	 * same for suit isomorphic hands and boards, and different otherwise
+	 */
+	public static long key(int[] hole, int[] board) {
+		if (hole.length > 5 || board.length > 5) {
+			throw new RuntimeException("invalid hand: " + Arrays.toString(hole) + " " + Arrays.toString(board));
+		}
+		// the board suits come first
+		final long boardMask = Poker.cardsMask(board), holeMask = Poker.cardsMask(hole);
+		final int[] perm = SuitSymmetry.canonicalPerm(new long[] { boardMask, holeMask });
+		// 6 bits per card (card + 1), hole cards then board
+		long key = 0;
+		for (long m : new long[] { SuitSymmetry.permute(holeMask, perm), SuitSymmetry.permute(boardMask, perm) }) {
+			final int[] cards = Poker.maskCards(m);
+			Arrays.sort(cards);
+			for (int n = 0; n < 5; n++) {
+				key = (key << 6) | (n < cards.length ? cards[n] + 1 : 0);
+			}
+		}
+		return key;
+	}
+	
+	/**
+	 * Get the canonical hole cards (0) and board (1) of the key
+	 */
+	public static int[][] unkey(long key) {
+		final int[][] a = new int[2][];
+		for (int i = 1; i >= 0; i--) {
+			final int[] cards = new int[5];
+			int len = 0;
+			for (int n = 4; n >= 0; n--) {
+				final int c = (int) (key >>> (n * 6)) & 0x3f;
+				if (c > 0) {
+					cards[len++] = c - 1;
+				}
+			}
+			a[i] = Arrays.copyOf(cards, len);
+			key >>>= 30;
+		}
+		return a;
+	}
+	
+	/** number of cards in each hand */
+	public final int cards;
+	/** binomial coefficients (n, k) for k = 1 to cards, for the hand index */
+	private final int[][] binomials;
+	/** class of each hand, by combination index of the integer cards in ascending order */
+	private final int[] classes;
+	/** smallest card mask of each class */
+	private final long[] masks;
+	/** number of hands in each class */
+	private final int[] counts;
+	
+	private HandIndexer(final int cards) {
+		this.cards = cards;
+		binomials = new int[cards + 1][52];
+		for (int k = 1; k <= cards; k++) {
+			for (int n = 0; n < 52; n++) {
+				binomials[k][n] = MathsUtil.binomialCoefficientFast(n, k);
+			}
+		}
+		
+		// canonical mask of every hand, in combination order
+		final int hands = MathsUtil.binomialCoefficientFast(52, cards);
+		final long[] canonical = new long[hands];
+		final long[] m = new long[1];
+		final int[] c = new int[cards];
+		for (int n = 0; n < cards; n++) {
+			c[n] = n;
+		}
+		for (int h = 0; h < hands; h++) {
+			m[0] = 0;
+			for (int n = 0; n < cards; n++) {
+				m[0] |= Poker.cardMask(c[n]);
+			}
+			canonical[h] = SuitSymmetry.canonical(m)[0];
+			
+			// next combination in colex order
+			int i = 0;
+			while (i < cards - 1 && c[i] + 1 == c[i + 1]) {
+				c[i] = i;
+				i++;
+			}
+			c[i]++;
+		}
+		
+		// the distinct canonical masks are the classes
+		final long[] sorted = canonical.clone();
+		Arrays.sort(sorted);
+		int size = 0;
+		for (int h = 0; h < hands; h++) {
+			if (h == 0 || sorted[h] != sorted[h - 1]) {
+				sorted[size++] = sorted[h];
+			}
+		}
+		masks = Arrays.copyOf(sorted, size);
+		classes = new int[hands];
+		counts = new int[size];
+		for (int h = 0; h < hands; h++) {
+			final int i = Arrays.binarySearch(masks, canonical[h]);
+			classes[h] = i;
+			counts[i]++;
+		}
+		System.out.println("hand indexer " + cards + ": " + hands + " hands, " + size + " classes");
+	}
+	
+	/** number of classes */
+	public int size() {
+		return masks.length;
+	}
+	
+	/**
+	 * Get the class of the integer cards
+	 */
+	public int index(final int[] hole) {
+		if (hole.length != cards) {
+			throw new RuntimeException("invalid hand: " + Arrays.toString(hole));
+		}
+		final int[] a = hole.clone();
+		Arrays.sort(a);
+		int h = 0;
+		for (int n = 0; n < cards; n++) {
+			if (n > 0 && a[n] == a[n - 1]) {
+				throw new RuntimeException("duplicate cards: " + Arrays.toString(hole));
+			}
+			h += binomials[n + 1][a[n]];
+		}
+		return classes[h];
+	}
+	
+	/**
+	 * Get the class of the cards
+	 */
+	public int index(final String[] hole) {
+		return index(Poker.intCards(hole));
+	}
+	
+	/**
+	 * Get the smallest integer cards of the class, in ascending order
+	 */
+	public int[] cards(final int index) {
+		return Poker.maskCards(masks[index]);
+	}
+	
+	/** number of hands in the class */
+	public int count(final int index) {
+		return counts[index];
+	}
+	
+	/**
+	 * Get the description of the class, e.g. AKs, AKo or AA for two cards,
+	 * otherwise the cards of the smallest hand
+	 */
+	public String desc(final int index) {
+		final int[] c = cards(index);
+		if (cards == 2) {
+			final String f1 = Poker.intCardString(c[1]).substring(0, 1), f0 = Poker.intCardString(c[0]).substring(0, 1);
+			return f1 + f0 + (c[0] >> 2 == c[1] >> 2 ? "" : (c[0] & 3) == (c[1] & 3) ? "s" : "o");
+		}
+		return PokerUtil.cardsString(Poker.intCardsString(c));
+	}
+
+}
@@ -20,9 +20,10 @@ public class MEquity {
 	public float totaleq;
 	/** percentage times the player will win the entire pot */
 	public float scoop;
-	
-	/** number of times won all pots, no ties */
-	int scoopcount;
+	/** number of samples or boards */
+	public long count;
+	/** 95% confidence interval of total equity percentage if sampled, otherwise 0 */
+	public float ci;
 	
 	static MEquity createMEquity (Equity.Type type, int rem, boolean exact) {
 		Equity[] eqs = new Equity[] {
@@ -54,27 +55,42 @@ public class MEquity {
 		this.exact = exact;
 	}
 	
-	/** get the equity instance for the given equity type */
-	public Equity getEquity(Equity.Type type) {
-		int i;
+	/**
+	 * create new equities of the same type with the same current values, to
+	 * summarise counts into without changing these
+	 */
+	MEquity copy() {
+		Equity[] e = new Equity[eqs.length];
+		for (int n = 0; n < eqs.length; n++) {
+			e[n] = new Equity(eqs[n].type, eqs[n].outs != null);
+			e[n].current = eqs[n].current;
+			e[n].curwin = eqs[n].curwin;
+			e[n].curtie = eqs[n].curtie;
+		}
+		return new MEquity(e, hilo, remCards, exact);
+	}
+	
+	/** get the index of the equity instance for the given equity type */
+	static int index(Equity.Type type) {
 		switch (type) {
 			case DSLO_ONLY:
 			case AFLO_ONLY:
 			case AFLO8_ONLY:
 			case HI_ONLY:
 			case BADUGI_ONLY:
-				i = 0;
-				break;
+				return 0;
 			case HILO_HI_HALF:
-				i = 1;
-				break;
+				return 1;
 			case HILO_AFLO8_HALF:
-				i = 2;
-				break;
+				return 2;
 			default:
 				throw new RuntimeException("no such equity type " + type);
 		}
-		Equity e = eqs[i];
+	}
+	
+	/** get the equity instance for the given equity type */
+	public Equity getEquity(Equity.Type type) {
+		Equity e = eqs[index(type)];
 		if (e.type != type) {
 			throw new RuntimeException("eq is type " + e.type + " not " + type);
 		}
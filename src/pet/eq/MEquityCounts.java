@@ -0,0 +1,384 @@
+package pet.eq;
+
+import java.nio.IntBuffer;
+import java.util.Collections;
+
+/**
+ * Win, tie, win rank, outs and scoop counts for the equities of each hand.
+ * Not thread safe, but instances for different samples or boards can be
+ * filled by different threads and then added together before being
+ * summarised into the MEquity array.
+ */
+public class MEquityCounts {
+	
+	/** number of equities per hand (1 or 3 for hi/lo) */
+	private final int types;
+	/** current value of each equity (hand * types + type index) */
+	private final int[] current;
+	/** currently winning or tying */
+	private final boolean[] curwin, curtie;
+	/** number of samples won */
+	private final long[] woncount;
+	/** number of samples tied */
+	private final long[] tiedcount;
+	/** number of people tied with including self */
+	private final long[] tiedwithcount;
+	/** winning ranks, (hand * types + type index) * RANKS + rank */
+	private final long[] wonrankcount;
+	/**
+	 * count that each integer card (as part of group of cards) will make the
+	 * best hand, (hand * types + type index) * 52 + card, or null
+	 */
+	private final long[] outcount;
+	/** number of times won all pots, no ties */
+	private final long[] scoopcount;
+	/** sum of share of pot won by each hand in each sample */
+	private final double[] sharesum;
+	/** sum of squares of share of pot won by each hand in each sample */
+	private final double[] sharesqsum;
+	/** share of pot won by each hand in current sample */
+	private final double[] share;
+	/** number of samples */
+	private long count;
+	/** number of samples with low */
+	private long lowCount;
+	/** the equities with current values these counts are for */
+	private final MEquity[] meqs;
+	
+	/**
+	 * Create counts for the given equities, which must already have the
+	 * current values set (they are used to count outs)
+	 */
+	public MEquityCounts(MEquity[] meqs) {
+		this.meqs = meqs;
+		types = meqs[0].eqs.length;
+		final int n = meqs.length * types;
+		current = new int[n];
+		curwin = new boolean[n];
+		curtie = new boolean[n];
+		woncount = new long[n];
+		tiedcount = new long[n];
+		tiedwithcount = new long[n];
+		wonrankcount = new long[n * Poker.RANKS];
+		outcount = meqs[0].eqs[0].outs != null ? new long[n * 52] : null;
+		scoopcount = new long[meqs.length];
+		sharesum = new double[meqs.length];
+		sharesqsum = new double[meqs.length];
+		share = new double[meqs.length];
+		for (int h = 0; h < meqs.length; h++) {
+			for (int t = 0; t < types; t++) {
+				final Equity e = meqs[h].eqs[t];
+				current[h * types + t] = e.current;
+				curwin[h * types + t] = e.curwin;
+				curtie[h * types + t] = e.curtie;
+			}
+		}
+	}
+	
+	/** number of samples counted */
+	public long getCount() {
+		return count;
+	}
+	
+	/** number of samples counted with low */
+	public long getLowCount() {
+		return lowCount;
+	}
+
+	/** number of hands */
+	public int getHands() {
+		return scoopcount.length;
+	}
+
+	/**
+	 * Get the 95% confidence interval of the total equity in percent of the
+	 * given hand, assuming the samples are random
+	 */
+	public float getCI(int hand) {
+		if (count == 0) {
+			return 100f;
+		}
+		final double mean = sharesum[hand] / count;
+		final double var = Math.max(sharesqsum[hand] / count - mean * mean, 0);
+		return (float) (196 * Math.sqrt(var / count));
+	}
+	
+	/**
+	 * Count a hi/lo sample with given hand values for the given integer cards
+	 * (may be null).
+	 */
+	public void updateHL(int[] hivals, int[] lovals, int[] cards) {
+		updateHL(hivals, lovals, cards, 1);
+	}
+
+	/**
+	 * Count a hi/lo sample the given number of times with given hand values
+	 * for the given integer cards (may be null).
+	 */
+	public void updateHL(int[] hivals, int[] lovals, int[] cards, int weight) {
+		// high winner
+		int hw = update2(Equity.Type.HILO_HI_HALF, hivals, cards, weight, 0.5);
+		// low winner
+		int lw = update2(Equity.Type.HILO_AFLO8_HALF, lovals, cards, weight, 0.5);
+		// have to win hi and low for scoop
+		if (hw >= 0 && hw == lw) {
+			scoopcount[hw] += weight;
+		}
+		updateShares(weight);
+		count += weight;
+		lowCount += weight;
+	}
+	
+	/**
+	 * Count a sample with given hand values for the given integer cards (may
+	 * be null).
+	 */
+	public void update(Equity.Type eqtype, int[] hivals, int[] cards) {
+		update(eqtype, hivals, cards, 1);
+	}
+
+	/**
+	 * Count a sample the given number of times with given hand values for the
+	 * given integer cards (may be null).
+	 */
+	public void update(Equity.Type eqtype, int[] hivals, int[] cards, int weight) {
+		int hw = update2(eqtype, hivals, cards, weight, 1);
+		if (hw >= 0) {
+			scoopcount[hw] += weight;
+		}
+		updateShares(weight);
+		count += weight;
+	}
+
+	/**
+	 * Add the shares of the current sample to the sums
+	 */
+	private void updateShares(int weight) {
+		for (int h = 0; h < share.length; h++) {
+			final double s = share[h];
+			if (s != 0) {
+				sharesum[h] += s * weight;
+				sharesqsum[h] += s * s * weight;
+				share[h] = 0;
+			}
+		}
+	}
+	
+	/**
+	 * Update win, tie and win rank counts with given hand values for the
+	 * given cards, and the share of the pot (of the given size) of the
+	 * winners.
+	 * Return index of single winner (scoop), if any, or -1
+	 */
+	private int update2(Equity.Type eqtype, int[] vals, int[] cards, int weight, double pot) {
+		// find highest hand and number of times it occurs
+		int max = 0, maxcount = 0;
+		for (int i = 0; i < vals.length; i++) {
+			int v = vals[i];
+			if (v > max) {
+				max = v;
+				maxcount = 1;
+			} else if (v == max) {
+				maxcount++;
+			}
+		}
+		
+		final int t = MEquity.index(eqtype);
+		int winner = -1;
+		
+		for (int i = 0; i < vals.length; i++) {
+			if (vals[i] == max) {
+				// update the win/tied/rank count
+				final int e = i * types + t;
+				if (maxcount == 1) {
+					winner = i;
+					woncount[e] += weight;
+				} else {
+					tiedcount[e] += weight;
+					tiedwithcount[e] += maxcount * weight;
+				}
+				wonrankcount[e * Poker.RANKS + Poker.rank(max)] += weight;
+				share[i] += pot / maxcount;
+				
+				// count the cards as outs if this turns losing hand into
+				// win/tie or tying hand into win
+				if (cards != null && current[e] > 0 && (!(curwin[e] || curtie[e]) || (curtie[e] && maxcount == 1))) {
+					for (int c = 0; c < cards.length; c++) {
+						outcount[e * 52 + cards[c]] += weight;
+					}
+				}
+			}
+		}
+		
+		return winner;
+	}
+	
+	/**
+	 * Add the counts of the given counts (for the same hands) to these
+	 */
+	public void add(MEquityCounts c) {
+		for (int e = 0; e < woncount.length; e++) {
+			woncount[e] += c.woncount[e];
+			tiedcount[e] += c.tiedcount[e];
+			tiedwithcount[e] += c.tiedwithcount[e];
+		}
+		for (int n = 0; n < wonrankcount.length; n++) {
+			wonrankcount[n] += c.wonrankcount[n];
+		}
+		if (outcount != null) {
+			for (int n = 0; n < outcount.length; n++) {
+				outcount[n] += c.outcount[n];
+			}
+		}
+		for (int h = 0; h < scoopcount.length; h++) {
+			scoopcount[h] += c.scoopcount[h];
+			sharesum[h] += c.sharesum[h];
+			sharesqsum[h] += c.sharesqsum[h];
+		}
+		count += c.count;
+		lowCount += c.lowCount;
+	}
+	
+	/**
+	 * Get the number of ints written by put()
+	 */
+	public int intSize() {
+		return 2 + woncount.length * 3 + wonrankcount.length + scoopcount.length;
+	}
+
+	/**
+	 * Put the counts (except outs) into the buffer as ints, so they must all
+	 * be less than 2^31
+	 */
+	public void put(IntBuffer buf) {
+		buf.put((int) count);
+		buf.put((int) lowCount);
+		for (int e = 0; e < woncount.length; e++) {
+			buf.put((int) woncount[e]);
+			buf.put((int) tiedcount[e]);
+			buf.put((int) tiedwithcount[e]);
+		}
+		for (int n = 0; n < wonrankcount.length; n++) {
+			buf.put((int) wonrankcount[n]);
+		}
+		for (int h = 0; h < scoopcount.length; h++) {
+			buf.put((int) scoopcount[h]);
+		}
+	}
+
+	/**
+	 * Add the counts written by put() (for the same hands) at the given
+	 * position of the buffer to these counts. Does not change the buffer
+	 * position.
+	 */
+	public void add(IntBuffer buf, int off) {
+		count += buf.get(off++);
+		lowCount += buf.get(off++);
+		for (int e = 0; e < woncount.length; e++) {
+			woncount[e] += buf.get(off++);
+			tiedcount[e] += buf.get(off++);
+			tiedwithcount[e] += buf.get(off++);
+		}
+		for (int n = 0; n < wonrankcount.length; n++) {
+			wonrankcount[n] += buf.get(off++);
+		}
+		for (int h = 0; h < scoopcount.length; h++) {
+			scoopcount[h] += buf.get(off++);
+		}
+	}
+
+	/**
+	 * summarise the counts so far into new equities, leaving the equities
+	 * these counts were created for unchanged (no outs)
+	 */
+	public MEquity[] snapshot() {
+		final MEquity[] a = new MEquity[meqs.length];
+		for (int h = 0; h < meqs.length; h++) {
+			a[h] = meqs[h].copy();
+		}
+		summarise(a);
+		return a;
+	}
+	
+	/**
+	 * summarise equities (convert counts to percentages)
+	 */
+	public void summarise(MEquity[] meqs) {
+		//System.out.println("summarise count=" + count + " hilocount=" + lowCount);
+		for (int h = 0; h < meqs.length; h++) {
+			final MEquity meq = meqs[h];
+			
+			Equity hionly = meq.eqs[0];
+			summariseEquity(hionly, h * types);
+			
+			if (lowCount == 0) {
+				meq.totaleq = hionly.total;
+			
+			} else {
+				Equity hihalf = meq.eqs[1];
+				// high count as it applies to every hand not just hi/lo hands
+				summariseEquity(hihalf, h * types + 1);
+				
+				Equity lohalf = meq.eqs[2];
+				summariseEquity(lohalf, h * types + 2);
+				
+				meq.lowPossible = (lowCount * 100f) / count;
+				
+				meq.totaleq = hionly.total + (hihalf.total + lohalf.total) / 2;
+			}
+			
+			meq.scoop = (scoopcount[h] * 100f) / count;
+			meq.count = count;
+			meq.ci = meq.exact ? 0 : getCI(h);
+		}
+	}
+	
+	/**
+	 * update percentage won, tied and by rank
+	 */
+	private void summariseEquity(Equity eq, int e) {
+		long wontiedcount = woncount[e] + tiedcount[e];
+		eq.won = (woncount[e] * 100f) / count;
+		eq.tied = (tiedcount[e] * 100f) / count;
+		for (int n = 0; n < Poker.RANKS; n++) {
+			eq.wonrank[n] = wontiedcount != 0 ? (wonrankcount[e * Poker.RANKS + n] * 100f) / wontiedcount : 0;
+		}
+		
+		eq.total = (woncount[e] * 100f) / count;
+		if (tiedcount[e] > 0) {
+			eq.total += (eq.tied * ((tiedcount[e] * 1f) / tiedwithcount[e]));
+		}
+	}
+	
+	/**
+	 * Summarise out probabilities for given number of picks from remaining
+	 * cards
+	 */
+	public void summariseOuts(MEquity[] meqs, int picks) {
+		if (outcount != null) {
+			for (int h = 0; h < meqs.length; h++) {
+				final MEquity meq = meqs[h];
+				// maximum number of times an out can appear (average if sampled)
+				// prob of appearing once is picks/remCards, just multiply by samples
+				// (n,k,s) = (k*s)/n
+				// (52,1,52) = 1,  (52,2,1326) = 51,  (52,3,100000) = 5769
+				float max = ((float) picks * count) / meq.remCards;
+				for (int t = 0; t < types; t++) {
+					final Equity eq = meq.eqs[t];
+					final int off = (h * types + t) * 52;
+					for (int n = 0; n < 52; n++) {
+						long c = outcount[off + n];
+						if (c > 0) {
+							String card = Poker.intCardString(n);
+							float pc = (c * 100f) / max;
+							eq.outs.add(new Equity.Out(card, pc));
+						}
+					}
+					Collections.sort(eq.outs);
+					Collections.reverse(eq.outs);
+				}
+			}
+		}
+	}
+
+}
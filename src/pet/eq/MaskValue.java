@@ -0,0 +1,296 @@
+package pet.eq;
+
+import static pet.eq.Poker.*;
+
+/**
+ * Hand valuation of card bit masks (see Poker.cardMask) using face mask
+ * lookup tables. Returns the same values as the string and integer card
+ * valuation methods in Poker, but valuing up to 7 cards at once (i.e. the
+ * best 5 card hand) rather than one 5 card hand.
+ */
+public class MaskValue {
+	
+	/** 13 bit face mask of each suit in a card mask */
+	private static final int FACES = 0x1fff;
+	/** number of ints per hand for hiPrefixes */
+	public static final int PREFIX = 6;
+	
+	/**
+	 * top n faces of face mask as packed face values, most significant
+	 * first, i.e. top[n][mask]
+	 */
+	private static final int[][] top = new int[6][FACES + 1];
+	/** high card value of straight (5-14) in face mask, or 0 */
+	private static final int[] straight = new int[FACES + 1];
+	/** high value of 5 or more suited cards with face mask */
+	private static final int[] flush = new int[FACES + 1];
+	/**
+	 * ace to five 8 or better low value of 8 bit low face mask (bit 0 = ace,
+	 * bit 7 = eight), or 0
+	 */
+	private static final int[] low8 = new int[256];
+	
+	static {
+		for (int m = 0; m <= FACES; m++) {
+			for (int n = 1; n <= 5; n++) {
+				int v = 0;
+				int x = m;
+				for (int i = 0; i < n && x != 0; i++) {
+					int b = 31 - Integer.numberOfLeadingZeros(x);
+					v = (v << 4) | (b + 2);
+					x &= ~(1 << b);
+				}
+				top[n][m] = v;
+			}
+			
+			// shift up so bottom bit is ace low, find highest straight
+			int x = (m << 1) | ((m >> 12) & 1);
+			for (int str = 14; str >= 5; str--) {
+				int sm = 31 << (str - 5);
+				if ((x & sm) == sm) {
+					straight[m] = str;
+					break;
+				}
+			}
+			
+			if (Integer.bitCount(m) >= 5) {
+				flush[m] = HI_TYPE | (straight[m] != 0 ? SF_RANK | straight[m] : FL_RANK | top[5][m]);
+			}
+		}
+		
+		for (int m = 0; m < 256; m++) {
+			if (Integer.bitCount(m) >= 5) {
+				// lowest 5 faces, most significant first
+				int v = 0;
+				int x = m;
+				for (int i = 0; i < 5; i++) {
+					int b = Integer.numberOfTrailingZeros(x);
+					v |= (b + 1) << (i * 4);
+					x &= ~(1 << b);
+				}
+				low8[m] = AF_LOW_TYPE | (MAX_RANK - (H_RANK | v));
+			}
+		}
+	}
+	
+	/**
+	 * Get high value of the best 5 card hand of the 5-7 cards in the card
+	 * mask, with type of HI_TYPE.
+	 */
+	public static int hiValue(final long mask) {
+		final int c = (int) mask & FACES;
+		final int d = (int) (mask >>> 16) & FACES;
+		final int h = (int) (mask >>> 32) & FACES;
+		final int s = (int) (mask >>> 48) & FACES;
+		
+		// with 7 or less cards, a flush excludes full house and four of a kind
+		if (Integer.bitCount(c) >= 5) {
+			return flush[c];
+		} else if (Integer.bitCount(d) >= 5) {
+			return flush[d];
+		} else if (Integer.bitCount(h) >= 5) {
+			return flush[h];
+		} else if (Integer.bitCount(s) >= 5) {
+			return flush[s];
+		}
+		
+		return nonFlushValue(c, d, h, s, Long.bitCount(mask));
+	}
+	
+	/**
+	 * Get the high values of each of the hole card masks with the board card
+	 * mask (5-7 cards in total), splitting the board into suits once, and
+	 * only checking for a flush in the one suit that can have one (the suit
+	 * with at least 3 cards on the board, if any).
+	 */
+	public static void hiValues(final long board, final long[] holes, final int[] vals) {
+		final int c = (int) board & FACES;
+		final int d = (int) (board >>> 16) & FACES;
+		final int h = (int) (board >>> 32) & FACES;
+		final int s = (int) (board >>> 48) & FACES;
+		final int boardCount = Long.bitCount(board);
+		int fs = -1;
+		if (Integer.bitCount(c) >= 3) {
+			fs = 0;
+		} else if (Integer.bitCount(d) >= 3) {
+			fs = 16;
+		} else if (Integer.bitCount(h) >= 3) {
+			fs = 32;
+		} else if (Integer.bitCount(s) >= 3) {
+			fs = 48;
+		}
+		
+		for (int n = 0; n < holes.length; n++) {
+			final long hole = holes[n];
+			if (fs >= 0) {
+				final int f = (int) ((board | hole) >>> fs) & FACES;
+				if (Integer.bitCount(f) >= 5) {
+					vals[n] = flush[f];
+					continue;
+				}
+			}
+			vals[n] = nonFlushValue(c | ((int) hole & FACES), d | ((int) (hole >>> 16) & FACES),
+					h | ((int) (hole >>> 32) & FACES), s | ((int) (hole >>> 48) & FACES), boardCount + Long.bitCount(hole));
+		}
+	}
+	
+	/**
+	 * Prepare each of the hole card masks with the first board cards (at most
+	 * 6 cards in total) for hiValues(prefixes, card, vals), in PREFIX ints per
+	 * hand: the face mask of each suit, the only suit that can have a flush
+	 * with one more card (with at least 4 cards) or -1, and the number of
+	 * cards.
+	 */
+	public static void hiPrefixes(final long board, final long[] holes, final int[] prefixes) {
+		for (int n = 0, o = 0; n < holes.length; n++, o += PREFIX) {
+			final long mask = board | holes[n];
+			int fs = -1;
+			for (int s = 0; s < 4; s++) {
+				final int f = (int) (mask >>> (s * 16)) & FACES;
+				prefixes[o + s] = f;
+				if (Integer.bitCount(f) >= 4) {
+					fs = s;
+				}
+			}
+			prefixes[o + 4] = fs;
+			prefixes[o + 5] = Long.bitCount(mask);
+		}
+	}
+	
+	/**
+	 * Get the high values of each hand prepared by hiPrefixes with one more
+	 * integer card (see Poker.intCard), only checking the suit prepared for a
+	 * flush.
+	 */
+	public static void hiValues(final int[] prefixes, final int card, final int[] vals) {
+		final int cs = card & 3, cf = 1 << (card >> 2);
+		for (int n = 0, o = 0; n < vals.length; n++, o += PREFIX) {
+			final int fs = prefixes[o + 4];
+			if (fs >= 0) {
+				final int f = fs == cs ? prefixes[o + fs] | cf : prefixes[o + fs];
+				if (Integer.bitCount(f) >= 5) {
+					vals[n] = flush[f];
+					continue;
+				}
+			}
+			final int c = prefixes[o], d = prefixes[o + 1], h = prefixes[o + 2], s = prefixes[o + 3];
+			vals[n] = nonFlushValue(cs == 0 ? c | cf : c, cs == 1 ? d | cf : d, cs == 2 ? h | cf : h, cs == 3 ? s | cf : s, prefixes[o + 5] + 1);
+		}
+	}
+	
+	/**
+	 * Get the high value of the given number of cards (5-7) with the given
+	 * face masks of each suit, none of which have a flush
+	 */
+	private static int nonFlushValue(final int c, final int d, final int h, final int s, final int cards) {
+		final int faces = c | d | h | s;
+		if (Integer.bitCount(faces) == cards) {
+			// no pairs
+			final int str = straight[faces];
+			return HI_TYPE | (str != 0 ? ST_RANK | str : top[5][faces]);
+		}
+		
+		final int fk = c & d & h & s;
+		if (fk != 0) {
+			final int f = top[1][fk];
+			return HI_TYPE | FK_RANK | (f << 4) | top[1][faces & ~fk];
+		}
+		
+		final int two = (c & d) | (c & h) | (c & s) | (d & h) | (d & s) | (h & s);
+		final int three = (c & d & h) | (c & d & s) | (c & h & s) | (d & h & s);
+		if (three != 0) {
+			final int tk = top[1][three];
+			final int tkm = Integer.highestOneBit(three);
+			final int rest = two & ~tkm;
+			if (rest != 0) {
+				// full house, pair can be from other three of a kind
+				return HI_TYPE | FH_RANK | (tk << 4) | top[1][rest];
+			}
+			final int str = straight[faces];
+			if (str != 0) {
+				return HI_TYPE | ST_RANK | str;
+			}
+			return HI_TYPE | TK_RANK | (tk << 8) | top[2][faces & ~tkm];
+		}
+		
+		final int str = straight[faces];
+		if (str != 0) {
+			return HI_TYPE | ST_RANK | str;
+		}
+		
+		if (Integer.bitCount(two) >= 2) {
+			final int pm = Integer.highestOneBit(two);
+			final int pm2 = Integer.highestOneBit(two & ~pm);
+			final int pa = top[2][pm | pm2];
+			return HI_TYPE | TP_RANK | (pa << 4) | top[1][faces & ~(pm | pm2)];
+		}
+		
+		return HI_TYPE | P_RANK | (top[1][two] << 12) | top[3][faces & ~two];
+	}
+	
+	/**
+	 * Get ace to five 8 or better low value of the best 5 card hand of the 5-7
+	 * cards in the card mask, or 0 if there is no low.
+	 */
+	public static int afLow8Value(final long mask) {
+		final int faces = (int) (mask | (mask >>> 16) | (mask >>> 32) | (mask >>> 48)) & FACES;
+		return low8[lowFaces(faces)];
+	}
+	
+	/**
+	 * Get the ace to five 8 or better low values (or 0) of each of the hole
+	 * card masks with the board card mask, getting the board faces once.
+	 */
+	public static void afLow8Values(final long board, final long[] holes, final int[] vals) {
+		final int boardFaces = (int) (board | (board >>> 16) | (board >>> 32) | (board >>> 48)) & FACES;
+		for (int n = 0; n < holes.length; n++) {
+			final long hole = holes[n];
+			final int faces = boardFaces | ((int) (hole | (hole >>> 16) | (hole >>> 32) | (hole >>> 48)) & FACES);
+			vals[n] = low8[lowFaces(faces)];
+		}
+	}
+	
+	/**
+	 * Prepare each of the hole card masks with the first board cards for
+	 * afLow8Values(prefixes, card, vals), i.e. get the face mask of each hand.
+	 */
+	public static void afLow8Prefixes(final long board, final long[] holes, final int[] prefixes) {
+		for (int n = 0; n < holes.length; n++) {
+			final long mask = board | holes[n];
+			prefixes[n] = (int) (mask | (mask >>> 16) | (mask >>> 32) | (mask >>> 48)) & FACES;
+		}
+	}
+	
+	/**
+	 * Get the ace to five 8 or better low values (or 0) of each hand
+	 * prepared by afLow8Prefixes with one more integer card
+	 */
+	public static void afLow8Values(final int[] prefixes, final int card, final int[] vals) {
+		final int cf = 1 << (card >> 2);
+		for (int n = 0; n < vals.length; n++) {
+			vals[n] = low8[lowFaces(prefixes[n] | cf)];
+		}
+	}
+	
+	/**
+	 * Get 8 bit low face mask (bit 0 = ace, bit 7 = eight) of 13 bit face mask
+	 */
+	static int lowFaces(final int faces) {
+		return ((faces & 0x7f) << 1) | ((faces >> 12) & 1);
+	}
+	
+	/**
+	 * Get ace to five 8 or better low value of 8 bit low face mask, or 0
+	 */
+	static int low8Value(final int lowFaces) {
+		return low8[lowFaces];
+	}
+	
+	/**
+	 * Get high value of 5 suited cards with given face mask
+	 */
+	static int flushValue(final int faces) {
+		return flush[faces];
+	}
+
+}
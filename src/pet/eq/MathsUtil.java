@@ -75,6 +75,23 @@ public class MathsUtil {
 		}
 	}
 	
+	/**
+	 * Combinatorial number system for integer arrays.
+	 * Get the k combination at position p and write from 'from' into 'to' at offset.
+	 */
+	public static void kCombination(final int k, int p, final int[] from, final int[] to, final int off) {
+		for (int b = k; b >= 1; b--) {
+			for (int a = b - 1; a < 100; a++) {
+				int x = binomialCoefficientFast(a, b);
+				if (x > p) {
+					p -= binomialCoefficientFast(a - 1, b);
+					to[b - 1 + off] = from[a - 1];
+					break;
+				}
+			}
+		}
+	}
+	
 	public static float trunc(float f) {
 		return Math.round(f);
 	}
@@ -0,0 +1,287 @@
+package pet.eq;
+
+import java.util.Arrays;
+
+/**
+ * Omaha high and ace to five 8 or better low valuation (exactly 2 hole cards
+ * and 3 board cards) of integer cards, using lookup tables of the non flush
+ * and low value of each board triple face combination with each hole pair
+ * face combination. The board triples are prepared once per board and the
+ * hole pairs once per instance. Instances are not thread safe.
+ */
+public class OmahaValue {
+	
+	/** number of face combinations of 3 cards (with repetition) */
+	private static final int TRIPLES = 455;
+	/** number of face combinations of 2 cards (with repetition) */
+	private static final int PAIRS = 91;
+	/** suit of unsuited triple */
+	private static final int NO_TRIPLE_SUIT = 4;
+	/** suit of unsuited pair */
+	private static final int NO_PAIR_SUIT = 5;
+	
+	/** triple face combination of faces (0-12) f1 * 169 + f2 * 13 + f3, in any order */
+	private static final short[] tripleIndex = new short[13 * 13 * 13];
+	/** pair face combination of faces (0-12) f1 * 13 + f2, in any order */
+	private static final byte[] pairIndex = new byte[13 * 13];
+	/** non flush high value of triple face combination * PAIRS + pair face combination */
+	private static final int[] value = new int[TRIPLES * PAIRS];
+	/** ace to five 8 or better low value of triple face combination * PAIRS + pair face combination */
+	private static final int[] lowValue = new int[TRIPLES * PAIRS];
+	
+	static {
+		int t = 0, p = 0;
+		int[][] triples = new int[TRIPLES][];
+		int[][] pairs = new int[PAIRS][];
+		for (int f1 = 0; f1 < 13; f1++) {
+			for (int f2 = f1; f2 < 13; f2++) {
+				int[] pf = new int[] { f1, f2 };
+				pairs[p] = pf;
+				pairIndex[f1 * 13 + f2] = (byte) p;
+				pairIndex[f2 * 13 + f1] = (byte) p;
+				p++;
+				for (int f3 = f2; f3 < 13; f3++) {
+					int[] tf = new int[] { f1, f2, f3 };
+					triples[t] = tf;
+					// all permutations
+					for (int i = 0; i < 3; i++) {
+						for (int j = 0; j < 3; j++) {
+							if (i != j) {
+								tripleIndex[tf[i] * 169 + tf[j] * 13 + tf[3 - i - j]] = (short) t;
+							}
+						}
+					}
+					t++;
+				}
+			}
+		}
+		
+		int[] count = new int[13];
+		for (t = 0; t < TRIPLES; t++) {
+			for (p = 0; p < PAIRS; p++) {
+				// give each repeated face the next suit
+				Arrays.fill(count, 0);
+				long mask = 0;
+				int maxCount = 0;
+				int faces = 0;
+				for (int f : triples[t]) {
+					mask |= cardMask(f, count[f]++);
+					maxCount = Math.max(maxCount, count[f]);
+					faces |= 1 << f;
+				}
+				for (int f : pairs[p]) {
+					mask |= cardMask(f, count[f]++);
+					maxCount = Math.max(maxCount, count[f]);
+					faces |= 1 << f;
+				}
+				if (maxCount == 1) {
+					// low requires 5 different faces
+					lowValue[t * PAIRS + p] = MaskValue.low8Value(MaskValue.lowFaces(faces));
+				}
+				if (maxCount > 4) {
+					// five of a kind
+					continue;
+				}
+				if (maxCount == 1) {
+					// all one suit, move the last card to another suit
+					int f = pairs[p][1];
+					mask = (mask & ~cardMask(f, 0)) | cardMask(f, 1);
+				}
+				value[t * PAIRS + p] = MaskValue.hiValue(mask);
+			}
+		}
+	}
+	
+	private static long cardMask(int face, int suit) {
+		return Poker.cardMask(face * 4 + suit);
+	}
+	
+	/** number of hole pairs for each player */
+	private final int[] pairCount;
+	/** pair value offset (pair face combination) for each player and pair */
+	private final int[][] pairOff;
+	/** pair suit or NO_PAIR_SUIT for each player and pair */
+	private final int[][] pairSuit;
+	/** pair face mask for each player and pair */
+	private final int[][] pairFaces;
+	
+	/** number of board triples */
+	private int tripleCount;
+	/** triple value offset */
+	private final int[] tripleOff = new int[10];
+	/** triple suit or NO_TRIPLE_SUIT */
+	private final int[] tripleSuit = new int[10];
+	/** triple face mask */
+	private final int[] tripleFaces = new int[10];
+	
+	/** best high and low value of each player with the prefix board triples */
+	private final int[] prefixHi, prefixLo;
+	/** face index (f1 * 169 + f2 * 13) of each pair of prefix board cards */
+	private final int[] prefixPairIndex = new int[6];
+	/** suit or NO_TRIPLE_SUIT of each pair of prefix board cards */
+	private final int[] prefixPairSuit = new int[6];
+	/** face mask of each pair of prefix board cards */
+	private final int[] prefixPairFaces = new int[6];
+	
+	/**
+	 * create omaha valuation for the given hole cards of each player (2-5
+	 * integer cards each)
+	 */
+	public OmahaValue(int[][] holeCards) {
+		int n = holeCards.length;
+		prefixHi = new int[n];
+		prefixLo = new int[n];
+		pairCount = new int[n];
+		pairOff = new int[n][];
+		pairSuit = new int[n][];
+		pairFaces = new int[n][];
+		for (int i = 0; i < n; i++) {
+			int[] hole = holeCards[i];
+			int c = MathsUtil.binomialCoefficientFast(hole.length, 2);
+			pairCount[i] = c;
+			pairOff[i] = new int[c];
+			pairSuit[i] = new int[c];
+			pairFaces[i] = new int[c];
+			int p = 0;
+			for (int j = 0; j < hole.length; j++) {
+				for (int k = j + 1; k < hole.length; k++) {
+					int c1 = hole[j], c2 = hole[k];
+					int f1 = c1 >> 2, f2 = c2 >> 2;
+					pairOff[i][p] = pairIndex[f1 * 13 + f2];
+					pairSuit[i][p] = (c1 & 3) == (c2 & 3) ? c1 & 3 : NO_PAIR_SUIT;
+					pairFaces[i][p] = (1 << f1) | (1 << f2);
+					p++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * set the board (3-5 integer cards) for subsequent valuations
+	 */
+	public void setBoard(int[] board) {
+		setBoard(board, board.length);
+	}
+	
+	/**
+	 * set the board to the first len cards of board
+	 */
+	private void setBoard(int[] board, int len) {
+		int t = 0;
+		for (int i = 0; i < len; i++) {
+			for (int j = i + 1; j < len; j++) {
+				for (int k = j + 1; k < len; k++) {
+					int c1 = board[i], c2 = board[j], c3 = board[k];
+					int f1 = c1 >> 2, f2 = c2 >> 2, f3 = c3 >> 2;
+					tripleOff[t] = tripleIndex[f1 * 169 + f2 * 13 + f3] * PAIRS;
+					int s = c1 & 3;
+					tripleSuit[t] = (c2 & 3) == s && (c3 & 3) == s ? s : NO_TRIPLE_SUIT;
+					tripleFaces[t] = (1 << f1) | (1 << f2) | (1 << f3);
+					t++;
+				}
+			}
+		}
+		tripleCount = t;
+	}
+	
+	/**
+	 * set the first 4 cards of the board, and get the best values of each
+	 * player with only those cards (with low values if low is true), for
+	 * subsequent valuations with a fifth card
+	 */
+	public void setPrefix(int[] board, boolean low) {
+		setBoard(board, 4);
+		values(prefixHi, low ? prefixLo : null, false);
+		int p = 0;
+		for (int i = 0; i < 4; i++) {
+			for (int j = i + 1; j < 4; j++) {
+				int c1 = board[i], c2 = board[j];
+				int f1 = c1 >> 2, f2 = c2 >> 2;
+				prefixPairIndex[p] = f1 * 169 + f2 * 13;
+				prefixPairSuit[p] = (c1 & 3) == (c2 & 3) ? c1 & 3 : NO_TRIPLE_SUIT;
+				prefixPairFaces[p] = (1 << f1) | (1 << f2);
+				p++;
+			}
+		}
+	}
+	
+	/**
+	 * get the high value and optionally the low value of each players hole
+	 * cards with the prefix board and the given fifth board card, only
+	 * valuing the board triples with the fifth card
+	 */
+	public void values(final int card, final int[] hivals, final int[] lovals) {
+		final int f3 = card >> 2, s3 = card & 3;
+		for (int p = 0; p < 6; p++) {
+			tripleOff[p] = tripleIndex[prefixPairIndex[p] + f3] * PAIRS;
+			tripleSuit[p] = prefixPairSuit[p] == s3 ? s3 : NO_TRIPLE_SUIT;
+			tripleFaces[p] = prefixPairFaces[p] | (1 << f3);
+		}
+		tripleCount = 6;
+		values(hivals, lovals, true);
+	}
+	
+	/**
+	 * get the high value and optionally the ace to five 8 or better low value
+	 * (or 0) of each players hole cards with the current board in one pass
+	 */
+	public void values(final int[] hivals, final int[] lovals) {
+		values(hivals, lovals, false);
+	}
+	
+	/**
+	 * get the values with the current board triples, starting from the prefix
+	 * values if prefix is true
+	 */
+	private void values(final int[] hivals, final int[] lovals, final boolean prefix) {
+		if (lovals == null) {
+			for (int n = 0; n < hivals.length; n++) {
+				final int hv = hiValue(n);
+				hivals[n] = prefix && prefixHi[n] > hv ? prefixHi[n] : hv;
+			}
+			return;
+		}
+		
+		for (int n = 0; n < hivals.length; n++) {
+			final int[] po = pairOff[n], ps = pairSuit[n], pf = pairFaces[n];
+			final int pc = pairCount[n];
+			int hv = prefix ? prefixHi[n] : 0, lv = prefix ? prefixLo[n] : 0;
+			for (int t = 0; t < tripleCount; t++) {
+				final int to = tripleOff[t], ts = tripleSuit[t], tf = tripleFaces[t];
+				for (int p = 0; p < pc; p++) {
+					final int i = to + po[p];
+					final int v = ts == ps[p] ? MaskValue.flushValue(tf | pf[p]) : value[i];
+					if (v > hv) {
+						hv = v;
+					}
+					final int l = lowValue[i];
+					if (l > lv) {
+						lv = l;
+					}
+				}
+			}
+			hivals[n] = hv;
+			lovals[n] = lv;
+		}
+	}
+	
+	/**
+	 * get the high value of the players hole cards with the current board
+	 */
+	public int hiValue(int player) {
+		final int[] po = pairOff[player], ps = pairSuit[player], pf = pairFaces[player];
+		final int pc = pairCount[player];
+		int hv = 0;
+		for (int t = 0; t < tripleCount; t++) {
+			final int to = tripleOff[t], ts = tripleSuit[t], tf = tripleFaces[t];
+			for (int p = 0; p < pc; p++) {
+				final int v = ts == ps[p] ? MaskValue.flushValue(tf | pf[p]) : value[to + po[p]];
+				if (v > hv) {
+					hv = v;
+				}
+			}
+		}
+		return hv;
+	}
+	
+}
@@ -98,8 +98,6 @@ public abstract class Poker {
 	/** complete suits */
 	public static final char[] suits = { S_SUIT, H_SUIT, C_SUIT, D_SUIT };
 	
-	/** array of all possible unique hi hand values (there are only approx 7500) */
-	private static int[] uniqueHighValues;
 
 	static {
 		deckArrS = deckArr.clone();
@@ -126,7 +124,106 @@ public abstract class Poker {
 	public static String[] deck() {
 		return deckArr.clone();
 	}
-	
+
+	/*
+	 * integer card representation, used by the equity calculations so cards
+	 * are only parsed once:
+	 * card = (face - 2) * 4 + suit, i.e. 0-51 where face is 2-14 (ace high)
+	 * and suit is the index into "cdhs".
+	 * card bit mask = 1 << (suit * 16 + face - 2), i.e. each 16 bit block of
+	 * the mask is the 13 bit face mask of one suit.
+	 */
+
+	/** faces in integer card order */
+	private static final String INT_FACES = "23456789TJQKA";
+	/** suits in integer card order */
+	private static final String INT_SUITS = "cdhs";
+	/** string representation of integer cards */
+	private static final String[] intCardArr = new String[52];
+
+	static {
+		for (int c = 0; c < 52; c++) {
+			intCardArr[c] = new String(new char[] { INT_FACES.charAt(c >> 2), INT_SUITS.charAt(c & 3) });
+		}
+	}
+
+	/** get integer card (0-51) for card string */
+	public static int intCard(String card) {
+		if (card.length() != 2) {
+			throw new RuntimeException("no such card: " + card);
+		}
+		int f = INT_FACES.indexOf(face(card));
+		int s = INT_SUITS.indexOf(suit(card));
+		if (f < 0 || s < 0) {
+			throw new RuntimeException("no such card: " + card);
+		}
+		return (f << 2) | s;
+	}
+
+	/**
+	 * get integer cards for card strings, returns null if cards is null
+	 */
+	public static int[] intCards(String[] cards) {
+		if (cards == null) {
+			return null;
+		}
+		int[] a = new int[cards.length];
+		for (int n = 0; n < cards.length; n++) {
+			a[n] = intCard(cards[n]);
+		}
+		return a;
+	}
+
+	/** get card string for integer card */
+	public static String intCardString(int c) {
+		return intCardArr[c];
+	}
+
+	/** get card strings for integer cards */
+	public static String[] intCardsString(int[] cards) {
+		String[] a = new String[cards.length];
+		for (int n = 0; n < cards.length; n++) {
+			a[n] = intCardArr[cards[n]];
+		}
+		return a;
+	}
+
+	/** face value of integer card, ace high (2 = 2, A = 14) */
+	public static int intFace(int c) {
+		return (c >> 2) + 2;
+	}
+
+	/** suit of integer card, 0-3 in cdhs order */
+	public static int intSuit(int c) {
+		return c & 3;
+	}
+
+	/** get bit mask of integer card */
+	public static long cardMask(int c) {
+		return 1L << (((c & 3) << 4) + (c >> 2));
+	}
+
+	/** get bit mask of integer cards */
+	public static long cardsMask(int[] cards) {
+		long m = 0;
+		for (int n = 0; n < cards.length; n++) {
+			m |= cardMask(cards[n]);
+		}
+		return m;
+	}
+
+	/** get integer cards of mask, in integer card order */
+	public static int[] maskCards(long mask) {
+		int[] a = new int[Long.bitCount(mask)];
+		int i = 0;
+		for (int c = 0; c < 52; c++) {
+			if ((mask & cardMask(c)) != 0) {
+				a[i++] = c;
+			}
+		}
+		return a;
+	}
+
 	/**
 	 * count low cards
 	 */
@@ -139,7 +236,21 @@ public abstract class Poker {
 		}
 		return count;
 	}
-	
+
+	/**
+	 * count low (8 or less, ace low) integer cards
+	 */
+	protected static int lowCount(int[] hand) {
+		int count = 0;
+		for (int n = 0; n < hand.length; n++) {
+			// ace or 2-8
+			if (hand[n] >= 48 || hand[n] < 28) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * get 8 or better qualified ace to five low value of hand.
 	 * returns 0 if no low.
@@ -223,6 +334,92 @@ public abstract class Poker {
 		return p | HI_TYPE;
 	}
 	
+	//
+	// integer card valuations, these are the same as the string card
+	// valuations, but the hand is only checked for length
+	//
+	
+	/**
+	 * get 8 or better qualified ace to five low value of integer card hand.
+	 * returns 0 if no low.
+	 */
+	static int afLow8Value(int[] hand) {
+		validate(hand);
+		if (lowCount(hand) == 5) {
+			int p = isPair(hand, false);
+			if (p < P_RANK) {
+				// no pairs, invert value
+				return AF_LOW_TYPE | (MAX_RANK - p);
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * get unqualified ace to five low value of integer card hand
+	 */
+	static int afLowValue(int[] hand) {
+		validate(hand);
+		return AF_LOW_TYPE | (MAX_RANK - isPair(hand, false));
+	}
+	
+	/**
+	 * return straight value of integer card hand, or 0, no other ranks
+	 */
+	public static int strValue(int[] hand) {
+		int s = isStraight(hand);
+		return s > 0 ? ST_RANK | s : 0;
+	}
+	
+	/**
+	 * Get high value of 5 integer card hand with type of HI_TYPE
+	 */
+	public static int value(int[] hand) {
+		validate(hand);
+		int p = isPair(hand, true);
+		if (p < P_RANK) {
+			boolean f = isFlush(hand);
+			int s = isStraight(hand);
+			if (f) {
+				if (s > 0) {
+					p = SF_RANK | s;
+				} else {
+					p = FL_RANK | p;
+				}
+			} else if (s > 0) {
+				p = ST_RANK | s;
+			}
+		}
+		return p | HI_TYPE;
+	}
+	
+	/**
+	 * deuce to seven value of integer card hand
+	 */
+	static int dsValue(int[] hand) {
+		return DS_LOW_TYPE | (MAX_RANK - (value(hand) & HAND));
+	}
+	
+	/** check integer card hand is 5 cards */
+	private static void validate(int[] h) {
+		if (h.length != 5) {
+			throw new RuntimeException("invalid hand length: " + Arrays.toString(h));
+		}
+	}
+	
+	/**
+	 * return true if integer card hand is flush
+	 */
+	private static boolean isFlush(int[] hand) {
+		int s = hand[0] & 3;
+		for (int n = 1; n < 5; n++) {
+			if ((hand[n] & 3) != s) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * return true if flush
 	 */
@@ -241,8 +438,6 @@ public abstract class Poker {
 	 */
 	private static int isStraight(String[] hand) {
 		int x = 0;
-		// straight value
-		int str = 5;
 		for (int n = 0; n < hand.length; n++) {
 			// sub 1 so bottom bit equals ace low
 			int v = faceValueAH(hand[n]) - 1;
@@ -252,6 +447,31 @@ public abstract class Poker {
 				x |= 1;
 			}
 		}
+		return straightValue(x);
+	}
+	
+	/** 
+	 * return value of high card of straight (5-14) or 0 for integer cards
+	 */
+	private static int isStraight(int[] hand) {
+		int x = 0;
+		for (int n = 0; n < hand.length; n++) {
+			// add 1 so bottom bit equals ace low
+			x |= (2 << (hand[n] >> 2));
+		}
+		if ((x & 0x2000) != 0) {
+			x |= 1;
+		}
+		return straightValue(x);
+	}
+	
+	/**
+	 * return value of high card of straight (5-14) or 0 for face bit mask
+	 * (bit 0 = ace low, bit 13 = ace high)
+	 */
+	private static int straightValue(int x) {
+		// straight value
+		int str = 5;
 		// [11111000000001]
 		while (x >= 31) {
 			if ((x & 31) == 31) {
@@ -273,6 +493,28 @@ public abstract class Poker {
 		for (int n = 0; n < hand.length; n++) {
 			v += (1L << ((14 - faceValue(hand[n], acehigh)) * 3));
 		}
+		return pairValue(v);
+	}
+	
+	/**
+	 * Return pair value or high cards without type mask of integer card hand.
+	 * Does not require sorted hand
+	 */
+	private static int isPair(int[] hand, boolean acehigh) {
+		long v = 0;
+		for (int n = 0; n < hand.length; n++) {
+			int c = hand[n];
+			int f = acehigh || c < 48 ? intFace(c) : 1;
+			v += (1L << ((14 - f) * 3));
+		}
+		return pairValue(v);
+	}
+	
+	/**
+	 * Return pair value or high cards without type mask for given card face
+	 * frequencies (3 bits each, ace high first)
+	 */
+	private static int pairValue(long v) {
 		// get the card faces for each frequency
 		int fk = 0, tk = 0, pa = 0, hc = 0;
 		for (int f = 14; v != 0; v >>= 3, f--) {
@@ -503,45 +745,10 @@ public abstract class Poker {
 	}
 	
 	/**
-	 * Go through every possible 5 card hand and collect the unique hand values in order
+	 * Get the unique high hand values in order (see ValueIndex)
 	 */
 	protected static int[] highValues() {
-		if (uniqueHighValues != null) {
-			return uniqueHighValues;
-		}
-		
-		Set<Integer> uniqueValueSet = new TreeSet<>();
-		String[] hand = new String[5];
-		int valueCount = 0;
-		for (int n0 = 0; n0 < deckArr.length; n0++) {
-			hand[0] = deckArr[n0];
-			for (int n1 = n0 + 1; n1 < deckArr.length; n1++) {
-				hand[1] = deckArr[n1];
-				for (int n2 = n1 + 1; n2 < deckArr.length; n2++) {
-					hand[2] = deckArr[n2];
-					for (int n3 = n2 + 1; n3 < deckArr.length; n3++) {
-						hand[3] = deckArr[n3];
-						for (int n4 = n3 + 1; n4 < deckArr.length; n4++) {
-							hand[4] = deckArr[n4];
-							uniqueValueSet.add(Poker.value(hand));
-							valueCount++;
-						}
-					}
-				}
-			}
-		}
-		System.out.println("values: " + valueCount);
-		System.out.println("unique values: " + uniqueValueSet.size());
-		
-		int[] a = new int[uniqueValueSet.size()];
-		int i = 0;
-		for (int v : uniqueValueSet) {
-			a[i++] = v;
-		}
-		
-		Arrays.sort(a);
-		uniqueHighValues = a;
-		return a;
+		return ValueIndex.get(Value.hiValue).values;
 	}
 	
 	//
@@ -549,17 +756,42 @@ public abstract class Poker {
 	//
 	
 	/**
-	 * Calculate equity for given board and hands.
+	 * Calculate equity for given board and hands, or get it from the equity
+	 * cache.
 	 */
 	public final MEquity[] equity(Collection<String> board, Collection<String[]> cards, Collection<String> blockers, int draws) {
 		String[] boardArr = board != null ? board.toArray(new String[board.size()]) : null;
 		String[][] cardsArr = cards.toArray(new String[cards.size()][]);
 		String[] blockersArr = blockers.toArray(new String[blockers.size()]);
-		return equity(boardArr, cardsArr, blockersArr, draws);
+		return EquityCache.equity(this, boardArr, cardsArr, blockersArr, draws);
 	}
 	
+	/**
+	 * Start calculating equity for given board and hands in the background,
+	 * returning immediately. Sampling stops at the deadline
+	 * (System.currentTimeMillis(), or 0 for none) if it hasn't already
+	 * stopped, and partial equities are passed to the listener (if any)
+	 * periodically while sampling, and the final equities when done. Uses the
+	 * equity cache if there is no deadline.
+	 */
+	public final EquityFuture equityAsync(Collection<String> board, Collection<String[]> cards, Collection<String> blockers, int draws, long deadline, EquityFuture.Listener listener) {
+		String[] boardArr = board != null ? board.toArray(new String[board.size()]) : null;
+		String[][] cardsArr = cards.toArray(new String[cards.size()][]);
+		String[] blockersArr = blockers.toArray(new String[blockers.size()]);
+		EquityFuture f = new EquityFuture(this, boardArr, cardsArr, blockersArr, draws, deadline, listener);
+		f.start();
+		return f;
+	}
+	
+	/** sample policy of the background calculation running in the current thread, if any */
+	static final ThreadLocal<SamplePolicy> asyncPolicy = new ThreadLocal<>();
+	
 	/** primary valuation method */
 	protected Value value;
+	/** when to stop sampling */
+	protected volatile SamplePolicy samplePolicy = SamplePolicy.DEFAULT;
+	/** random number seed for sampling, 0 for a different seed each time */
+	protected volatile long seed;
 	
 	public Poker(Value value) {
 		this.value = value;
@@ -570,6 +802,48 @@ public abstract class Poker {
 		return value;
 	}
 	
+	/** get the policy for sampled equity calculations */
+	public SamplePolicy getSamplePolicy() {
+		return samplePolicy;
+	}
+	
+	/** set the policy for sampled equity calculations */
+	public void setSamplePolicy(SamplePolicy samplePolicy) {
+		this.samplePolicy = samplePolicy;
+	}
+	
+	/**
+	 * get the policy for the sampled equity calculation in the current
+	 * thread, which is different for background calculations
+	 */
+	protected SamplePolicy policy() {
+		final SamplePolicy p = asyncPolicy.get();
+		return p != null ? p : samplePolicy;
+	}
+	
+	/** get the random number seed for sampling, 0 if none */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * set the random number seed for sampling, so sampled equity can be
+	 * repeated exactly (as long as the sample policy doesn't stop on time and
+	 * the number of threads is the same), or 0 for a different seed each time
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * get random numbers for a sampled equity calculation, split them for
+	 * each thread
+	 */
+	protected SplitRandom random() {
+		final long s = seed;
+		return s != 0 ? new SplitRandom(s) : new SplitRandom();
+	}
+	
 	/**
 	 * Calculate equity for given board and hands (implementation)
 	 */
@@ -0,0 +1,259 @@
+package pet.eq;
+
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * A weighted set of hold'em or omaha hole card combinations, parsed from a
+ * comma separated list of items, each optionally followed by a weight
+ * percentage (0-100, default 100) e.g. "QQ+,AKs,ATs+:50". Items that come
+ * later replace the weight of the combinations of earlier items, and a
+ * weight of 0 removes them.
+ * <p>
+ * Hold'em items are explicit cards (AhKh), pairs (QQ, QQ+, 22-55), and
+ * suited (s), offsuit (o) or any (neither) non pairs (AKs, ATo+, KQ, A2s-A5s).
+ * <p>
+ * Omaha items are explicit cards (AsAdKcKh), or 4 or 5 faces where x is any
+ * face, optionally followed by ds (double suited), ss (single suited) or r
+ * (rainbow), e.g. AAxx, AKQJds. Faces must all be present, so AAxx includes
+ * hands with three aces.
+ */
+public class Range {
+	
+	/** maximum weight, i.e. always in range */
+	public static final int MAX_WEIGHT = 100;
+	
+	private static final String FACES = "23456789TJQKA";
+	private static final Pattern HE_PATTERN = Pattern.compile("([2-9TJQKA])([2-9TJQKA])([so]?)(\\+?)");
+	private static final Pattern HE_RANGE_PATTERN = Pattern.compile("([2-9TJQKA])([2-9TJQKA])([so]?)-([2-9TJQKA])([2-9TJQKA])([so]?)");
+	private static final Pattern OM_PATTERN = Pattern.compile("([2-9TJQKAXx]{4,5})(ds|ss|r)?");
+	private static final Pattern CARDS_PATTERN = Pattern.compile("([2-9TJQKA][cdhs])+");
+	
+	/**
+	 * Parse a hold'em or omaha range
+	 */
+	public static Range parse(final String range, final boolean omaha) {
+		// combination mask to weight, in order added
+		final Map<Long, Integer> map = new LinkedHashMap<Long, Integer>();
+		for (String item : range.split(",")) {
+			item = item.trim();
+			if (item.length() == 0) {
+				continue;
+			}
+			int weight = MAX_WEIGHT;
+			final int i = item.indexOf(':');
+			if (i >= 0) {
+				try {
+					weight = Integer.parseInt(item.substring(i + 1).trim());
+				} catch (NumberFormatException e) {
+					throw new RuntimeException("invalid weight: " + item);
+				}
+				if (weight < 0 || weight > MAX_WEIGHT) {
+					throw new RuntimeException("invalid weight: " + item);
+				}
+				item = item.substring(0, i).trim();
+			}
+			
+			final List<Long> masks = new ArrayList<Long>();
+			if (CARDS_PATTERN.matcher(item).matches()) {
+				masks.add(cardsItem(item, omaha));
+			} else if (omaha) {
+				omahaItem(item, masks);
+			} else {
+				holdemItem(item, masks);
+			}
+			for (Long mask : masks) {
+				// replace weight but keep first position
+				map.put(mask, weight);
+			}
+		}
+		
+		final List<int[]> combos = new ArrayList<int[]>();
+		final List<Integer> weights = new ArrayList<Integer>();
+		for (Map.Entry<Long, Integer> e : map.entrySet()) {
+			if (e.getValue() > 0) {
+				combos.add(Poker.maskCards(e.getKey()));
+				weights.add(e.getValue());
+			}
+		}
+		if (combos.size() == 0) {
+			throw new RuntimeException("empty range: " + range);
+		}
+		return new Range(range, combos, weights);
+	}
+	
+	/**
+	 * Get the mask of explicit cards
+	 */
+	private static long cardsItem(final String item, final boolean omaha) {
+		final int n = item.length() / 2;
+		if (omaha ? n < 4 || n > 5 : n != 2) {
+			throw new RuntimeException("invalid number of cards: " + item);
+		}
+		long mask = 0;
+		for (int c = 0; c < n; c++) {
+			mask |= Poker.cardMask(Poker.intCard(item.substring(c * 2, c * 2 + 2)));
+		}
+		if (Long.bitCount(mask) != n) {
+			throw new RuntimeException("duplicate cards: " + item);
+		}
+		return mask;
+	}
+	
+	/**
+	 * Add the masks of the hold'em item
+	 */
+	private static void holdemItem(final String item, final List<Long> masks) {
+		Matcher m;
+		if ((m = HE_PATTERN.matcher(item)).matches()) {
+			final int f1 = FACES.indexOf(m.group(1)), f2 = FACES.indexOf(m.group(2));
+			final int hi = Math.max(f1, f2), lo = Math.min(f1, f2);
+			final boolean plus = m.group(4).length() > 0;
+			if (hi == lo) {
+				if (m.group(3).length() > 0) {
+					throw new RuntimeException("invalid pair: " + item);
+				}
+				for (int f = lo; f <= (plus ? 12 : lo); f++) {
+					holdemMasks(f, f, "", masks);
+				}
+			} else {
+				for (int f = lo; f <= (plus ? hi - 1 : lo); f++) {
+					holdemMasks(hi, f, m.group(3), masks);
+				}
+			}
+		
+		} else if ((m = HE_RANGE_PATTERN.matcher(item)).matches()) {
+			final int a1 = FACES.indexOf(m.group(1)), a2 = FACES.indexOf(m.group(2));
+			final int b1 = FACES.indexOf(m.group(4)), b2 = FACES.indexOf(m.group(5));
+			if (!m.group(3).equals(m.group(6))) {
+				throw new RuntimeException("invalid range: " + item);
+			}
+			if (a1 == a2 && b1 == b2 && m.group(3).length() == 0) {
+				// pairs
+				for (int f = Math.min(a1, b1); f <= Math.max(a1, b1); f++) {
+					holdemMasks(f, f, "", masks);
+				}
+			} else if (a1 == b1 && a1 != a2 && b1 != b2) {
+				// same first face
+				for (int f = Math.min(a2, b2); f <= Math.max(a2, b2); f++) {
+					if (f != a1) {
+						holdemMasks(Math.max(a1, f), Math.min(a1, f), m.group(3), masks);
+					}
+				}
+			} else {
+				throw new RuntimeException("invalid range: " + item);
+			}
+		
+		} else {
+			throw new RuntimeException("invalid hold'em range item: " + item);
+		}
+	}
+	
+	/**
+	 * Add the masks of the hold'em hands of the faces (0-12) with the given
+	 * suitedness (s, o or empty for either)
+	 */
+	private static void holdemMasks(final int f1, final int f2, final String suited, final List<Long> masks) {
+		for (int s1 = 0; s1 < 4; s1++) {
+			for (int s2 = 0; s2 < 4; s2++) {
+				if (f1 == f2 ? s1 < s2 : suited.equals("s") ? s1 == s2 : suited.equals("o") ? s1 != s2 : true) {
+					masks.add(Poker.cardMask(f1 * 4 + s1) | Poker.cardMask(f2 * 4 + s2));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Add the masks of the omaha hands matching the pattern
+	 */
+	private static void omahaItem(final String item, final List<Long> masks) {
+		final Matcher m = OM_PATTERN.matcher(item);
+		if (!m.matches()) {
+			throw new RuntimeException("invalid omaha range item: " + item);
+		}
+		final String faces = m.group(1).toUpperCase();
+		final String suits = m.group(2) != null ? m.group(2) : "";
+		final int[] need = new int[13];
+		for (int n = 0; n < faces.length(); n++) {
+			final int f = FACES.indexOf(faces.charAt(n));
+			if (f >= 0) {
+				need[f]++;
+			}
+		}
+		
+		// check every hand
+		final int k = faces.length();
+		final int[] cards = new int[k];
+		final int[] count = new int[13];
+		final int[] suitCount = new int[4];
+		for (int n = 0; n < k; n++) {
+			cards[n] = n;
+		}
+		while (true) {
+			Arrays.fill(count, 0);
+			Arrays.fill(suitCount, 0);
+			for (int c : cards) {
+				count[c >> 2]++;
+				suitCount[c & 3]++;
+			}
+			boolean match = true;
+			for (int f = 0; f < 13 && match; f++) {
+				match = count[f] >= need[f];
+			}
+			if (match && suits.length() > 0) {
+				int max = 0, twos = 0;
+				for (int s = 0; s < 4; s++) {
+					max = Math.max(max, suitCount[s]);
+					if (suitCount[s] == 2) {
+						twos++;
+					}
+				}
+				switch (suits) {
+					case "ds": match = max == 2 && twos == 2; break;
+					case "ss": match = max == 2 && twos == 1; break;
+					default: match = max == 1;
+				}
+			}
+			if (match) {
+				masks.add(Poker.cardsMask(cards));
+			}
+			
+			// next combination in colex order
+			int i = 0;
+			while (i < k - 1 && cards[i] + 1 == cards[i + 1]) {
+				cards[i] = i;
+				i++;
+			}
+			if (++cards[i] == 52) {
+				break;
+			}
+		}
+	}
+	
+	/** the range string */
+	private final String range;
+	/** integer hole cards of each combination, in integer card order */
+	public final int[][] combos;
+	/** weight of each combination (1-100) */
+	public final int[] weights;
+	
+	private Range(final String range, final List<int[]> combos, final List<Integer> weights) {
+		this.range = range;
+		this.combos = combos.toArray(new int[combos.size()][]);
+		this.weights = new int[weights.size()];
+		for (int n = 0; n < this.weights.length; n++) {
+			this.weights[n] = weights.get(n);
+		}
+	}
+	
+	/** number of combinations */
+	public int size() {
+		return combos.length;
+	}
+	
+	@Override
+	public String toString() {
+		return range + " (" + combos.length + " combos)";
+	}
+
+}
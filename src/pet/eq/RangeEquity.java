@@ -0,0 +1,40 @@
+package pet.eq;
+
+/**
+ * Equity of a range against other ranges
+ */
+public class RangeEquity {
+	
+	/** the range */
+	public final Range range;
+	/** percentage equity of the range */
+	public float equity;
+	/**
+	 * percentage equity of each combination of the range, NaN if it can never
+	 * be dealt
+	 */
+	public final float[] comboEquity;
+	/**
+	 * percentage of the weight of the range of each combination, after card
+	 * removal of the board, blockers and other ranges
+	 */
+	public final float[] comboWeight;
+	/** is this equity exact or sampled */
+	public boolean exact;
+	/** number of boards */
+	public long count;
+	/** 95% confidence interval of equity percentage if sampled, otherwise 0 */
+	public float ci;
+	
+	public RangeEquity(Range range) {
+		this.range = range;
+		this.comboEquity = new float[range.size()];
+		this.comboWeight = new float[range.size()];
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s: %.2f%%%s", range, equity, exact ? "" : String.format(" +/-%.2f", ci));
+	}
+
+}
@@ -0,0 +1,48 @@
+package pet.eq;
+
+import java.util.Arrays;
+
+/**
+ * Exact equity of each hand for a board and for each card that can come
+ * next, e.g. every turn of a flop and every river of each turn
+ */
+public class Runout {
+	
+	/** the card added to the previous board, null for the starting board */
+	public final String card;
+	/** equity of each hand with the card */
+	public final MEquity[] meqs;
+	/** runouts of each card that can come next, in deck order, or null if the board is complete */
+	public final Runout[] next;
+	
+	public Runout(String card, MEquity[] meqs, Runout[] next) {
+		this.card = card;
+		this.meqs = meqs;
+		this.next = next;
+	}
+	
+	/**
+	 * Get the change in total equity percentage of the hand from this board to
+	 * the given next card, or NaN if the card can't come next
+	 */
+	public float delta(int hand, String card) {
+		if (next != null) {
+			for (Runout r : next) {
+				if (r.card.equals(card)) {
+					return r.meqs[hand].totaleq - meqs[hand].totaleq;
+				}
+			}
+		}
+		return Float.NaN;
+	}
+	
+	@Override
+	public String toString() {
+		final float[] eqs = new float[meqs.length];
+		for (int n = 0; n < meqs.length; n++) {
+			eqs[n] = meqs[n].totaleq;
+		}
+		return (card != null ? card : "board") + ": " + Arrays.toString(eqs) + (next != null ? " (" + next.length + " runouts)" : "");
+	}
+
+}
@@ -0,0 +1,98 @@
+package pet.eq;
+
+/**
+ * When to stop sampling for a sampled (not exact) equity calculation.
+ * Samples are taken in batches until the confidence interval of the equity
+ * of every hand is small enough, or the maximum number of samples or time is
+ * reached.
+ */
+public class SamplePolicy {
+	
+	/** default policy, 1% confidence interval with at most 100000 samples or 2 seconds */
+	public static final SamplePolicy DEFAULT = new SamplePolicy(1f, 500, 100000, 2000);
+	
+	/** number of samples between checks */
+	public static final int BATCH = 250;
+	
+	/** target 95% confidence interval of equity in percent (e.g. 1 = +/-1%) */
+	public final float targetCI;
+	/** minimum number of samples */
+	public final int minSamples;
+	/** maximum number of samples */
+	public final int maxSamples;
+	/** maximum time in milliseconds */
+	public final long maxTime;
+	
+	public SamplePolicy(float targetCI, int minSamples, int maxSamples, long maxTime) {
+		if (targetCI < 0 || minSamples < 1 || maxSamples < minSamples || maxTime < 0) {
+			throw new RuntimeException("invalid sample policy");
+		}
+		this.targetCI = targetCI;
+		this.minSamples = minSamples;
+		this.maxSamples = maxSamples;
+		this.maxTime = maxTime;
+	}
+	
+	/**
+	 * Get the number of samples to take next, or 0 if sampling should stop,
+	 * given the counts so far and the start time (System.nanoTime()).
+	 */
+	public final int next(MEquityCounts counts, long startNanos) {
+		return next(counts, startNanos, BATCH);
+	}
+	
+	/**
+	 * Get the number of samples to take next (at most the given batch, e.g.
+	 * a batch for each thread), or 0 if sampling should stop, given the
+	 * counts so far and the start time (System.nanoTime()).
+	 */
+	public int next(MEquityCounts counts, long startNanos, int batch) {
+		float ci = 0;
+		for (int n = 0; n < counts.getHands(); n++) {
+			ci = Math.max(ci, counts.getCI(n));
+		}
+		return next(counts.getCount(), ci, startNanos, batch);
+	}
+	
+	/**
+	 * Get the number of samples to take next, or 0 if sampling should stop,
+	 * given the number of samples so far, the largest confidence interval and
+	 * the start time (System.nanoTime()).
+	 */
+	public final int next(long count, float ci, long startNanos) {
+		return next(count, ci, startNanos, BATCH);
+	}
+	
+	/**
+	 * Get the number of samples to take next (at most the given batch), or 0
+	 * if sampling should stop, given the number of samples so far, the
+	 * largest confidence interval and the start time (System.nanoTime()).
+	 */
+	public int next(long count, float ci, long startNanos, int batch) {
+		if (count < minSamples) {
+			return (int) Math.min(batch, minSamples - count);
+		}
+		if (count >= maxSamples || System.nanoTime() - startNanos >= maxTime * 1000000) {
+			return 0;
+		}
+		if (ci > targetCI) {
+			return (int) Math.min(batch, maxSamples - count);
+		}
+		return 0;
+	}
+	
+	/**
+	 * Check whether an exact calculation may go on, called between parts of
+	 * the enumeration from any thread. Throws CancellationException if it
+	 * should stop, which this policy never does.
+	 */
+	public void check() {
+		//
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("SamplePolicy[ci=%.2f samples=%d-%d time=%d]", targetCI, minSamples, maxSamples, maxTime);
+	}
+
+}
@@ -0,0 +1,75 @@
+package pet.eq;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fast splittable random numbers (SplitMix64, as in SplittableRandom, which
+ * Java 7 doesn't have). Extends Random so it can be used anywhere a Random is,
+ * but unlike Random it is not thread safe - split a new one for each thread.
+ * Generators created with the same seed return the same numbers, as do the
+ * generators split from them in the same order.
+ */
+public class SplitRandom extends Random {
+	
+	private static final long serialVersionUID = 1L;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	/** seeds of generators without a given seed */
+	private static final AtomicLong SEEDS = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+	
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Get an odd gamma with enough bit transitions
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+	
+	private long seed;
+	private final long gamma;
+	
+	/**
+	 * Create a generator with a different seed each time
+	 */
+	public SplitRandom() {
+		this(mix64(SEEDS.getAndAdd(2 * GOLDEN_GAMMA)), GOLDEN_GAMMA);
+	}
+	
+	/**
+	 * Create a generator with the given seed
+	 */
+	public SplitRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+	
+	private SplitRandom(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+	
+	/**
+	 * Create a new generator with a seed and gamma from this one
+	 */
+	public SplitRandom split() {
+		return new SplitRandom(nextLong(), mixGamma(seed += gamma));
+	}
+	
+	@Override
+	public long nextLong() {
+		return mix64(seed += gamma);
+	}
+	
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+}
@@ -0,0 +1,133 @@
+package pet.eq;
+
+import java.util.*;
+
+/**
+ * The suit permutations that leave some sets of cards (e.g. each hand, the
+ * board and the blockers) unchanged, used to value only one of each set of
+ * equivalent card masks (see Poker.cardMask) and weight it by the number of
+ * masks it represents.
+ */
+public class SuitSymmetry {
+	
+	/** all 24 permutations of the 4 suits, new suit = perm[suit] */
+	private static final int[][] PERMS = new int[24][];
+	
+	static {
+		int p = 0;
+		for (int a = 0; a < 4; a++) {
+			for (int b = 0; b < 4; b++) {
+				for (int c = 0; c < 4; c++) {
+					for (int d = 0; d < 4; d++) {
+						if (a != b && a != c && a != d && b != c && b != d && c != d) {
+							PERMS[p++] = new int[] { a, b, c, d };
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Apply the suit permutation to the card mask
+	 */
+	public static long permute(final long mask, final int[] perm) {
+		return ((mask & 0xffffL) << (perm[0] * 16))
+				| (((mask >>> 16) & 0xffffL) << (perm[1] * 16))
+				| (((mask >>> 32) & 0xffffL) << (perm[2] * 16))
+				| ((mask >>> 48) << (perm[3] * 16));
+	}
+	
+	/**
+	 * Get the card masks with the suits permuted so the masks are the smallest
+	 * (comparing the first mask first, and so on). Equivalent sets of card
+	 * masks have the same canonical masks.
+	 */
+	public static long[] canonical(final long[] masks) {
+		final int[] perm = canonicalPerm(masks);
+		final long[] min = new long[masks.length];
+		for (int n = 0; n < masks.length; n++) {
+			min[n] = permute(masks[n], perm);
+		}
+		return min;
+	}
+	
+	/**
+	 * Get the suit permutation that makes the card masks canonical (see
+	 * canonical), new suit = perm[suit]
+	 */
+	public static int[] canonicalPerm(final long[] masks) {
+		final long[] min = masks.clone();
+		final long[] m = new long[masks.length];
+		int[] minPerm = PERMS[0];
+		for (int[] perm : PERMS) {
+			int cmp = 0;
+			for (int n = 0; n < masks.length; n++) {
+				m[n] = permute(masks[n], perm);
+				if (cmp == 0) {
+					cmp = Long.compare(m[n], min[n]);
+				}
+			}
+			if (cmp < 0) {
+				System.arraycopy(m, 0, min, 0, m.length);
+				minPerm = perm;
+			}
+		}
+		return minPerm.clone();
+	}
+	
+	/**
+	 * Get the suit permutations that leave every one of the given card masks
+	 * unchanged. Always includes the identity.
+	 */
+	public static SuitSymmetry create(final long[] masks) {
+		final List<int[]> perms = new ArrayList<int[]>();
+		for (int[] perm : PERMS) {
+			boolean fixed = true;
+			for (long mask : masks) {
+				if (permute(mask, perm) != mask) {
+					fixed = false;
+					break;
+				}
+			}
+			if (fixed) {
+				perms.add(perm);
+			}
+		}
+		return new SuitSymmetry(perms.toArray(new int[perms.size()][]));
+	}
+	
+	/** the suit permutations, not including the identity */
+	private final int[][] perms;
+	
+	private SuitSymmetry(final int[][] perms) {
+		// first one is always the identity
+		this.perms = Arrays.copyOfRange(perms, 1, perms.length);
+	}
+	
+	/**
+	 * Get the number of suit permutations, including the identity. If this is
+	 * 1, there is no symmetry.
+	 */
+	public int size() {
+		return perms.length + 1;
+	}
+	
+	/**
+	 * Get the number of different card masks the given card mask is
+	 * equivalent to, if it is the smallest of them, otherwise return 0.
+	 */
+	public int weight(final long mask) {
+		int same = 1;
+		for (int[] perm : perms) {
+			final long m = permute(mask, perm);
+			if (m < mask) {
+				return 0;
+			} else if (m == mask) {
+				same++;
+			}
+		}
+		return (perms.length + 1) / same;
+	}
+
+}
@@ -0,0 +1,54 @@
+package pet.eq;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * thread pool shared by the equity calculations
+ */
+public class ThreadUtil {
+	
+	/** number of threads to use */
+	private static final int parallelism = Runtime.getRuntime().availableProcessors();
+	/** pool, created when first used */
+	private static ForkJoinPool pool;
+	
+	/**
+	 * get the fork join pool for parallel calculations
+	 */
+	public static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+	
+	/**
+	 * run the tasks on the pool and get their results in order, throwing
+	 * CancellationException if any task was cancelled
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+		final List<T> results = new ArrayList<>(tasks.size());
+		try {
+			for (Future<T> f : getPool().invokeAll(tasks)) {
+				results.add(f.get());
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CancellationException) {
+				throw (CancellationException) e.getCause();
+			}
+			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		return results;
+	}
+	
+	/**
+	 * get the number of threads in the pool
+	 */
+	public static int getParallelism() {
+		return parallelism;
+	}
+	
+}
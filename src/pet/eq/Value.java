@@ -16,6 +16,14 @@ public abstract class Value {
 			return Poker.value(hand);
 		}
 		@Override
+		public final int value(int[] hand) {
+			return Poker.value(hand);
+		}
+		@Override
+		public final int value(long mask) {
+			return MaskValue.hiValue(mask);
+		}
+		@Override
 		public String[] draw (String[] cards, int drawn, String[] blockers, List<Draw> drawList) {
 			return DrawPrediction.getDrawingHand(drawList, cards, drawn, true, blockers);
 		}
@@ -29,6 +37,10 @@ public abstract class Value {
 		public int value(String[] hand) {
 			return Poker.afLowValue(hand);
 		}
+		@Override
+		public int value(int[] hand) {
+			return Poker.afLowValue(hand);
+		}
 		// draw - just the lowest unique cards?
 	};
 	
@@ -40,6 +52,10 @@ public abstract class Value {
 		public final int value(String[] hand) {
 			return Poker.afLow8Value(hand);
 		}
+		@Override
+		public final int value(int[] hand) {
+			return Poker.afLow8Value(hand);
+		}
 	};
 	
 	/**
@@ -51,6 +67,10 @@ public abstract class Value {
 			return Poker.dsValue(hand);
 		}
 		@Override
+		public int value(int[] hand) {
+			return Poker.dsValue(hand);
+		}
+		@Override
 		public String[] draw (String[] cards, int drawn, String[] blockers, List<Draw> drawList) {
 			return DrawPrediction.getDrawingHand(drawList, cards, drawn, false, blockers);
 		}
@@ -64,6 +84,10 @@ public abstract class Value {
 		public int value(String[] hand) {
 			return Poker.strValue(hand);
 		}
+		@Override
+		public int value(int[] hand) {
+			return Poker.strValue(hand);
+		}
 	};
 	
 	/**
@@ -75,6 +99,14 @@ public abstract class Value {
 			return Badugi.badugiValue(hand);
 		}
 		@Override
+		public int value(int[] hand) {
+			return Badugi.badugiValue(hand);
+		}
+		@Override
+		public int value(long mask) {
+			return Badugi.badugiValue(mask);
+		}
+		@Override
 		public String[] draw (String[] cards, int drawn, String[] blockers, List<Draw> drawList) {
 			return Badugi.draw(cards, drawn);
 		}
@@ -98,6 +130,21 @@ public abstract class Value {
 	 */
 	public abstract int value(String[] hand);
 	
+	/**
+	 * get hand value of integer cards (see Poker.intCard). subclasses should
+	 * override this to avoid converting to strings.
+	 */
+	public int value(int[] hand) {
+		return value(Poker.intCardsString(hand));
+	}
+	
+	/**
+	 * get hand value of card bit mask (see Poker.cardMask)
+	 */
+	public int value(long mask) {
+		return value(Poker.maskCards(mask));
+	}
+	
 	/**
 	 * get estimated drawing hand. this method is on Value and not Poker because
 	 * it largely depends on the valuation method rather than the game rules
@@ -0,0 +1,196 @@
+package pet.eq;
+
+import java.util.*;
+
+/**
+ * Dense index of the distinct values of a value function, i.e. 0 for the
+ * worst value to size() - 1 for the best, with the description of each value
+ * and the percentage of all hands it beats, found by valuing every hand
+ * once. Values are mapped to indexes with an open addressing hash table, as
+ * there are few distinct values (about 7500 for high hands) but they are
+ * widely spread.
+ */
+public class ValueIndex {
+	
+	/** indexes of each value function, created when first used */
+	private static final Map<Value, ValueIndex> indexes = new HashMap<>();
+	
+	/**
+	 * Get the index of the values of the value function, valuing every hand
+	 * if this is the first time
+	 */
+	public static ValueIndex get(Value value) {
+		synchronized (indexes) {
+			ValueIndex vi = indexes.get(value);
+			if (vi == null) {
+				vi = new ValueIndex(value);
+				indexes.put(value, vi);
+			}
+			return vi;
+		}
+	}
+	
+	/**
+	 * Get the index of values of the same type as the given value (any type),
+	 * or null if there isn't one. Ace to five 8 or better values use the
+	 * ace to five index.
+	 */
+	public static ValueIndex forValue(int value) {
+		switch (value & Poker.TYPE) {
+			case Poker.HI_TYPE:
+				return get(Value.hiValue);
+			case Poker.DS_LOW_TYPE:
+				return get(Value.dsLowValue);
+			case Poker.AF_LOW_TYPE:
+				return get(Value.afLowValue);
+			case Poker.BADUGI_TYPE:
+				return get(Value.badugiValue);
+			default:
+				return null;
+		}
+	}
+	
+	/**
+	 * Get the description of the value (any type), the same as
+	 * Poker.valueString but without building the string each time
+	 */
+	public static String valueString(int value) {
+		final ValueIndex vi = value != 0 ? forValue(value) : null;
+		if (vi != null) {
+			final int i = vi.index(value);
+			if (i >= 0) {
+				return vi.descs[i];
+			}
+		}
+		return Poker.valueString(value);
+	}
+	
+	/** distinct values, lowest first */
+	final int[] values;
+	/** interned description of each value */
+	private final String[] descs;
+	/** percentage of hands with a lower value for each value */
+	private final float[] percentiles;
+	/** value of each hash table entry */
+	private final int[] hashValues;
+	/** index of each hash table entry, -1 if empty */
+	private final int[] hashIndexes;
+	/** hash table size - 1 */
+	private final int hashMask;
+	
+	private ValueIndex(Value value) {
+		// count the hands with each value
+		final Map<Integer, int[]> counts = new TreeMap<>();
+		final int k = value.cards;
+		final int[] c = new int[k];
+		for (int n = 0; n < k; n++) {
+			c[n] = n;
+		}
+		int hands = 0;
+		int lastValue = 0;
+		int[] lastCount = null;
+		while (true) {
+			long mask = 0;
+			for (int n = 0; n < k; n++) {
+				mask |= Poker.cardMask(c[n]);
+			}
+			final int v = value.value(mask);
+			if (v != lastValue || lastCount == null) {
+				lastCount = counts.get(v);
+				if (lastCount == null) {
+					counts.put(v, lastCount = new int[1]);
+				}
+				lastValue = v;
+			}
+			lastCount[0]++;
+			hands++;
+			
+			// next combination in colex order
+			int i = 0;
+			while (i < k - 1 && c[i] + 1 == c[i + 1]) {
+				c[i] = i;
+				i++;
+			}
+			if (++c[i] == 52) {
+				break;
+			}
+		}
+		
+		// no value (e.g. no low) has no index
+		final int[] zero = counts.remove(0);
+		int lower = zero != null ? zero[0] : 0;
+		final int size = counts.size();
+		values = new int[size];
+		descs = new String[size];
+		percentiles = new float[size];
+		int i = 0;
+		for (Map.Entry<Integer, int[]> e : counts.entrySet()) {
+			values[i] = e.getKey();
+			descs[i] = Poker.valueString(values[i]).intern();
+			percentiles[i] = (lower * 100f) / hands;
+			lower += e.getValue()[0];
+			i++;
+		}
+		
+		int hashSize = 1;
+		while (hashSize < size * 2) {
+			hashSize <<= 1;
+		}
+		hashMask = hashSize - 1;
+		hashValues = new int[hashSize];
+		hashIndexes = new int[hashSize];
+		Arrays.fill(hashIndexes, -1);
+		for (int p = 0; p < size; p++) {
+			int h = hash(values[p]);
+			while (hashIndexes[h] >= 0) {
+				h = (h + 1) & hashMask;
+			}
+			hashValues[h] = values[p];
+			hashIndexes[h] = p;
+		}
+		System.out.println("value index " + value.eqtype + ": " + hands + " hands, " + size + " values");
+	}
+	
+	private int hash(final int value) {
+		return ((value * 0x9e3779b1) >>> 16) & hashMask;
+	}
+	
+	/** number of distinct values */
+	public int size() {
+		return values.length;
+	}
+	
+	/**
+	 * Get the index of the value, or -1 if it is not a value of this index
+	 */
+	public int index(final int value) {
+		int h = hash(value);
+		int p;
+		while ((p = hashIndexes[h]) >= 0) {
+			if (hashValues[h] == value) {
+				return p;
+			}
+			h = (h + 1) & hashMask;
+		}
+		return -1;
+	}
+	
+	/** get the value at the index */
+	public int value(int index) {
+		return values[index];
+	}
+	
+	/** get the description of the value at the index */
+	public String desc(int index) {
+		return descs[index];
+	}
+	
+	/**
+	 * get the percentage of all hands (of the number of cards of the value
+	 * function) that have a lower value than the value at the index
+	 */
+	public float percentile(int index) {
+		return percentiles[index];
+	}
+
+}
@@ -1,6 +1,7 @@
 package pet.eq.impl;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import pet.eq.*;
 
@@ -8,6 +9,12 @@ import pet.eq.*;
  * Draw poker equity methods
  */
 public class DrawPoker extends Poker {
+	
+	/**
+	 * maximum number of hand valuations for exact single draw equity,
+	 * otherwise sample, regardless of the number of threads
+	 */
+	private static final double EXACT_EVALS = 2000000;
 
 	private static void validateHole (String[] hole) {
 		if (hole.length < 1 || hole.length > 5) {
@@ -39,71 +46,313 @@ public class DrawPoker extends Poker {
 		}
 		
 		// remaining cards in deck
-		final String[] deck = Poker.remdeck(holeCards, blockers);
+		// convert to integer cards once, all valuation is done with them
+		final int[] deck = Poker.intCards(Poker.remdeck(holeCards, blockers));
+		final int[][] holeCardsInt = new int[holeCards.length][];
+		for (int n = 0; n < holeCards.length; n++) {
+			holeCardsInt[n] = Poker.intCards(holeCards[n]);
+		}
+		
+		// number of cards each hand draws
+		final int[] missing = new int[holeCards.length];
+		int totalMissing = 0;
+		double deals = 1;
+		for (int n = 0; n < holeCards.length; n++) {
+			missing[n] = Math.max(0, value.cards - holeCardsInt[n].length);
+			if (totalMissing + missing[n] <= deck.length) {
+				deals *= MathsUtil.binomialCoefficientFast(deck.length - totalMissing, missing[n]);
+			}
+			totalMissing += missing[n];
+		}
+		// every deal of a single draw if there aren't too many
+		final boolean exact = draws == 1 && holeCards.length <= 3 && totalMissing <= deck.length
+				&& deals * holeCards.length <= EXACT_EVALS;
 		
 		// return value
-		final MEquity[] meqs = MEquityUtil.createMEquities(value.eqtype, holeCards.length, deck.length, false);
+		final MEquity[] meqs = MEquityUtil.createMEquities(value.eqtype, holeCards.length, deck.length, exact);
 		
 		// get current hand values (not equity)
 		final int[] vals = new int[holeCards.length];
 		for (int n = 0; n < holeCards.length; n++) {
 			if (holeCards[n].length == value.cards) {
-				vals[n] = value.value(holeCards[n]);
+				vals[n] = value.value(holeCardsInt[n]);
 			}
 		}
 		MEquityUtil.updateCurrent(meqs, value.eqtype, vals);
+		final MEquityCounts counts = new MEquityCounts(meqs);
 		
 		if (draws == 0) {
 			// final street, just return current values
 			System.out.println("no draws, using current");
-			MEquityUtil.updateMEquities(meqs, value.eqtype, vals, null);
-			MEquityUtil.summariseMEquities(meqs, 1, 0);
+			counts.update(value.eqtype, vals, null);
+			
+		} else if (exact) {
+			exactCounts(deck, holeCardsInt, missing, vals, meqs, counts);
+			System.out.println("draw exact, " + counts.getCount() + " deals");
 			
 		} else {
 			// draw at least once
-			final String[] hand = new String[value.cards];
-			final int samples = 10000;
-			final Random r = new Random();
-			System.out.println("draw " + draws + ", " + samples + " samples");
+			// number of cards drawn by all hands, but don't reshuffle if
+			// they need more than the whole deck
+			int picks = 0;
+			for (int n = 0; n < holeCardsInt.length; n++) {
+				picks += Math.max(0, value.cards - holeCardsInt[n].length) * draws;
+			}
+			picks = Math.min(picks, deck.length);
+			final SamplePolicy policy = policy();
+			final long start = System.nanoTime();
 			
-			for (int s = 0; s < samples; s++) {
-				ArrayUtil.shuffle(deck, r);
-				int di = 0;
-				
-				for (int hn = 0; hn < holeCards.length; hn++) {
-					int maxv = 0;
-					// run the draw multiple times and keep the best
-					// this will tend to overestimate equity as players
-					// might stand pat on a later draw with a marginal hand
-					// XXX if cards length is 5, don't bother with multiple draws
-					for (int d = 0; d < draws; d++) {
-						// could be any length
-						String[] cards = holeCards[hn];
-						for (int n = 0; n < value.cards; n++) {
-							if (cards.length > n) {
-								hand[n] = cards[n];
-							} else {
-								hand[n] = deck[di];
-								// lots of hands and draws might use whole deck
-								// ideally should reshuffle but might get same card twice in hand
-								// could reshuf for each player
-								di = (di + 1) % deck.length;
-							}
-						}
-						int v = value.value(hand);
-						if (v > maxv) {
-							maxv = v;
+			// each thread has its own deck and random numbers
+			final SplitRandom r = random();
+			final List<SampleTask> tasks = new ArrayList<>();
+			for (int n = 0; n < ThreadUtil.getParallelism(); n++) {
+				tasks.add(new SampleTask(deck.clone(), holeCardsInt, draws, picks, r.split(), vals, meqs));
+			}
+			
+			int samples;
+			while ((samples = policy.next(counts, start, SamplePolicy.BATCH * tasks.size())) > 0) {
+				// split samples between tasks, about a batch each
+				for (int n = 0; n < tasks.size(); n++) {
+					tasks.get(n).samples = (samples * (n + 1)) / tasks.size() - (samples * n) / tasks.size();
+				}
+				for (MEquityCounts c : ThreadUtil.invokeAll(tasks)) {
+					counts.add(c);
+				}
+			}
+			System.out.println("draw " + draws + ", " + counts.getCount() + " samples");
+		}
+		
+		counts.summarise(meqs);
+		return meqs;
+	}
+	
+	/**
+	 * Samples of the draws for one thread
+	 */
+	private class SampleTask implements Callable<MEquityCounts> {
+		private final int[] deck;
+		private final int[][] holeCardsInt;
+		private final int draws;
+		private final int picks;
+		private final Random r;
+		private final MEquity[] meqs;
+		private final int[] hand;
+		private final int[] vals;
+		/** number of samples for next call */
+		int samples;
+		
+		public SampleTask(int[] deck, int[][] holeCardsInt, int draws, int picks, Random r, int[] vals, MEquity[] meqs) {
+			this.deck = deck;
+			this.holeCardsInt = holeCardsInt;
+			this.draws = draws;
+			this.picks = picks;
+			this.r = r;
+			this.meqs = meqs;
+			this.hand = new int[value.cards];
+			this.vals = vals.clone();
+		}
+		
+		@Override
+		public MEquityCounts call() {
+			final MEquityCounts counts = new MEquityCounts(meqs);
+			sample(deck, holeCardsInt, draws, picks, r, samples, hand, vals, counts);
+			return counts;
+		}
+	}
+	
+	/**
+	 * Count the given number of samples of the draws of the hands, where picks
+	 * is the number of cards drawn
+	 */
+	private void sample(final int[] deck, final int[][] holeCardsInt, final int draws, final int picks, final Random r, final int samples, final int[] hand, final int[] vals, final MEquityCounts counts) {
+		for (int s = 0; s < samples; s++) {
+			ArrayUtil.shuffle(deck, picks, r);
+			int di = 0;
+			
+			for (int hn = 0; hn < holeCardsInt.length; hn++) {
+				int maxv = 0;
+				// run the draw multiple times and keep the best
+				// this will tend to overestimate equity as players
+				// might stand pat on a later draw with a marginal hand
+				// XXX if cards length is 5, don't bother with multiple draws
+				for (int d = 0; d < draws; d++) {
+					// could be any length
+					int[] cards = holeCardsInt[hn];
+					for (int n = 0; n < value.cards; n++) {
+						if (cards.length > n) {
+							hand[n] = cards[n];
+						} else {
+							hand[n] = deck[di];
+							// lots of hands and draws might use whole deck
+							// ideally should reshuffle but might get same card twice in hand
+							// could reshuf for each player
+							di = (di + 1) % deck.length;
 						}
 					}
-					vals[hn] = maxv;
+					int v = value.value(hand);
+					if (v > maxv) {
+						maxv = v;
+					}
 				}
-				MEquityUtil.updateMEquities(meqs, value.eqtype, vals, null);
+				vals[hn] = maxv;
+			}
+			counts.update(value.eqtype, vals, null);
+		}
+	}
+	
+	/**
+	 * Count every deal of the cards drawn by each hand for a single draw, with
+	 * the combinations of the first drawing hand split between threads
+	 */
+	private void exactCounts(final int[] deck, final int[][] holeCardsInt, final int[] missing, final int[] vals, final MEquity[] meqs, final MEquityCounts counts) {
+		int d = 0;
+		for (int m : missing) {
+			if (m > 0) {
+				d++;
+			}
+		}
+		if (d == 0) {
+			// all pat
+			counts.update(value.eqtype, vals, null);
+			return;
+		}
+		final int[] drawing = new int[d];
+		for (int n = 0, i = 0; n < missing.length; n++) {
+			if (missing[n] > 0) {
+				drawing[i++] = n;
 			}
-			
-			MEquityUtil.summariseMEquities(meqs, samples, 0);
 		}
 		
-		return meqs;
+		final int first = MathsUtil.binomialCoefficientFast(deck.length, missing[drawing[0]]);
+		final int t = Math.min(first, ThreadUtil.getParallelism() * 4);
+		final SamplePolicy policy = policy();
+		final List<ExactTask> tasks = new ArrayList<>();
+		for (int n = 0; n < t; n++) {
+			tasks.add(new ExactTask(deck, holeCardsInt, missing, drawing, vals, meqs, policy, (int) (((long) first * n) / t), (int) (((long) first * (n + 1)) / t)));
+		}
+		for (MEquityCounts c : ThreadUtil.invokeAll(tasks)) {
+			counts.add(c);
+		}
+	}
+	
+	/**
+	 * Every deal of a single draw where the first drawing hand draws the
+	 * combinations of the deck in the given range, for one thread
+	 */
+	private class ExactTask implements Callable<MEquityCounts> {
+		private final int[] missing;
+		/** indexes of the hands that draw */
+		private final int[] drawing;
+		private final MEquity[] meqs;
+		/** policy of the calling thread, for cancellation */
+		private final SamplePolicy policy;
+		private final int start, end;
+		/** remaining deck of each drawing hand after the previous hands have drawn */
+		private final int[][] decks;
+		private final int[] deckLen;
+		/** indexes into its deck of the cards drawn by each drawing hand */
+		private final int[][] picks;
+		/** complete hands */
+		private final int[][] hands;
+		private final int[] vals;
+		private MEquityCounts counts;
+		
+		public ExactTask(int[] deck, int[][] holeCardsInt, int[] missing, int[] drawing, int[] vals, MEquity[] meqs, SamplePolicy policy, int start, int end) {
+			this.missing = missing;
+			this.drawing = drawing;
+			this.meqs = meqs;
+			this.policy = policy;
+			this.start = start;
+			this.end = end;
+			this.decks = new int[drawing.length][deck.length];
+			this.deckLen = new int[drawing.length];
+			System.arraycopy(deck, 0, decks[0], 0, deck.length);
+			deckLen[0] = deck.length;
+			this.picks = new int[drawing.length][];
+			for (int n = 0; n < drawing.length; n++) {
+				picks[n] = new int[missing[drawing[n]]];
+			}
+			this.hands = new int[holeCardsInt.length][value.cards];
+			for (int n = 0; n < holeCardsInt.length; n++) {
+				System.arraycopy(holeCardsInt[n], 0, hands[n], 0, holeCardsInt[n].length);
+			}
+			// values of pat hands don't change
+			this.vals = vals.clone();
+		}
+		
+		@Override
+		public MEquityCounts call() {
+			counts = new MEquityCounts(meqs);
+			final int m = picks[0].length;
+			final int[] index = new int[deckLen[0]];
+			for (int n = 0; n < index.length; n++) {
+				index[n] = n;
+			}
+			for (int p = start; p < end; p++) {
+				policy.check();
+				MathsUtil.kCombination(m, p, index, picks[0], 0);
+				drawn(0);
+			}
+			return counts;
+		}
+		
+		/**
+		 * Draw every combination of the deck of the drawing hand
+		 */
+		private void draw(final int d) {
+			final int[] pick = picks[d];
+			final int m = pick.length;
+			for (int n = 0; n < m; n++) {
+				pick[n] = n;
+			}
+			while (true) {
+				drawn(d);
+				
+				// next combination in colex order
+				int i = 0;
+				while (i < m - 1 && pick[i] + 1 == pick[i + 1]) {
+					pick[i] = i;
+					i++;
+				}
+				if (++pick[i] == deckLen[d]) {
+					break;
+				}
+			}
+		}
+		
+		/**
+		 * The drawing hand has picked its cards, value it and draw for the next
+		 * hand, or count the deal if it is the last
+		 */
+		private void drawn(final int d) {
+			final int h = drawing[d];
+			final int[] deck = decks[d];
+			final int[] pick = picks[d];
+			final int[] hand = hands[h];
+			final int known = value.cards - missing[h];
+			for (int n = 0; n < pick.length; n++) {
+				hand[known + n] = deck[pick[n]];
+			}
+			vals[h] = value.value(hand);
+			
+			if (d + 1 == drawing.length) {
+				counts.update(value.eqtype, vals, null);
+				return;
+			}
+			
+			// deck without the picked cards
+			final int[] next = decks[d + 1];
+			int len = 0;
+			for (int c = 0, i = 0; c < deckLen[d]; c++) {
+				if (i < pick.length && pick[i] == c) {
+					i++;
+				} else {
+					next[len++] = deck[c];
+				}
+			}
+			deckLen[d + 1] = len;
+			draw(d + 1);
+		}
 	}
 	
 	@Override
@@ -6,18 +6,21 @@ package pet.eq.impl;
  * randomly or with combinatorial enumeration
  */
 abstract class HEBoard {
-	/** starting board, never changes */
-	final String[] current;
-	/** remaining cards in deck, never changes */
-	final String[] deck;
+	/** starting board (integer cards), never changes */
+	final int[] current;
+	/** remaining cards in deck (integer cards), never changes */
+	final int[] deck;
 	/** next board after call to next() */
-	final String[] board = new String[5];
-	public HEBoard(String[] deck, String[] current) {
+	final int[] board = new int[5];
+	/**
+	 * first position in board changed by last call to next(), the cards
+	 * before it are the same as the previous board
+	 */
+	int changed;
+	public HEBoard(int[] deck, int[] current) {
 		this.deck = deck;
 		this.current = current;
 	}
-	/** how many boards are there */
-	abstract int count();
 	/** create the next board */
 	abstract void next();
 	/** how many cards will be picked */
@@ -3,26 +3,52 @@ package pet.eq.impl;
 import pet.eq.MathsUtil;
 
 /**
- * generate all possible remaining boards
+ * generate all possible remaining boards.
+ * the boards are generated in colexicographical order of the deck indexes,
+ * stepping from one combination to the next rather than decoding each one,
+ * with the most significant card first on the board so the start of the
+ * board changes the least.
  */
 class HEBoardEnum extends HEBoard {
+	/** deck indexes 0-51 */
+	private static final int[] INDEXES = new int[52];
+	
+	static {
+		for (int n = 0; n < INDEXES.length; n++) {
+			INDEXES[n] = n;
+		}
+	}
+	
 	/** number of boards */
 	private final int count;
 	/** number of cards to pick */
 	private final int k;
-	/** board number */
-	private int p = 0;
+	/** deck indexes of current combination, in ascending order */
+	private final int[] idx;
+	/** number of boards generated */
+	private int p;
 	
-	public HEBoardEnum(String[] deck, String[] current) {
+	public HEBoardEnum(int[] deck, int[] current) {
+		this(deck, current, 0, -1);
+	}
+	
+	/**
+	 * generate only the boards from start (inclusive) to end (exclusive), or
+	 * to the last board if end is -1
+	 */
+	public HEBoardEnum(int[] deck, int[] current, int start, int end) {
 		super(deck, current);
 		for (int n = 0; n < current.length; n++) {
 			board[n] = current[n];
 		}
 		k = 5 - current.length;
-		count = MathsUtil.binomialCoefficientFast(deck.length, k);
+		count = (end >= 0 ? end : MathsUtil.binomialCoefficientFast(deck.length, k)) - start;
+		idx = new int[k];
+		// get the combination of the start position
+		MathsUtil.kCombination(k, start, INDEXES, idx, 0);
 	}
 	
-	@Override
+	/** how many boards are there */
 	int count() {
 		return count;
 	}
@@ -35,11 +61,29 @@ class HEBoardEnum extends HEBoard {
 	@Override
 	void next() {
 		// get board combination
-		MathsUtil.kCombination(k, p++, deck, board, current.length);
+		int i;
+		if (p++ == 0) {
+			i = k - 1;
+			
+		} else {
+			// find lowest index that can be incremented, reset the ones below it
+			i = 0;
+			while (i < k - 1 && idx[i] + 1 == idx[i + 1]) {
+				idx[i] = i;
+				i++;
+			}
+			idx[i]++;
+		}
+		
+		final int off = current.length + k - 1;
+		for (int j = 0; j <= i; j++) {
+			board[off - j] = deck[idx[j]];
+		}
+		changed = off - i;
 	}
 	
 	@Override
 	boolean exact() {
 		return true;
 	}
-}
\ No newline at end of file
+}
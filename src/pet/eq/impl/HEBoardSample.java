@@ -8,23 +8,19 @@ import pet.eq.ArrayUtil;
  * generate sample remaining boards
  */
 class HEBoardSample extends HEBoard {
-	private final long[] picked = new long[1];
-	private final int count;
-	private final Random r = new Random();
+	private final Random r;
+	private final int[] shuffled;
 	
-	public HEBoardSample(String[] deck, String[] current, int count) {
+	public HEBoardSample(int[] deck, int[] current, Random r) {
 		super(deck, current);
-		this.count = count;
+		this.r = r;
+		// own copy as it is partially shuffled for each board
+		this.shuffled = deck.clone();
 		for (int n = 0; n < current.length; n++) {
 			board[n] = current[n];
 		}
 	}
 	
-	@Override
-	int count() {
-		return count;
-	}
-	
 	@Override
 	int pick() {
 		return 5;
@@ -32,9 +28,11 @@ class HEBoardSample extends HEBoard {
 
 	@Override
 	void next() {
-		picked[0] = 0;
+		changed = current.length;
+		// only shuffle the cards used
+		ArrayUtil.shuffle(shuffled, 5 - current.length, r);
 		for (int n = current.length; n < 5; n++) {
-			board[n] = ArrayUtil.pick(r, deck, picked);
+			board[n] = shuffled[n - current.length];
 		}
 	}
 	
@@ -43,4 +41,4 @@ class HEBoardSample extends HEBoard {
 		return false;
 	}
 	
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package pet.eq.impl;
 
-import java.util.Arrays;
+import java.util.*;
+import java.util.concurrent.*;
 
 import pet.eq.*;
 
@@ -8,6 +9,23 @@ import pet.eq.*;
  * Hold'em and Omaha hand analysis, using a combinatorial number system.
  */
 public class HEPoker extends Poker {
+	
+	/**
+	 * minimum cost (see boardCost) of the boards of each task when splitting
+	 * an enumeration between threads
+	 */
+	private static final int MIN_TASK_COST = 500;
+	/** minimum number of boards of each task */
+	private static final int MIN_TASK_BOARDS = 4;
+	/**
+	 * maximum cost (see boardCost) of all boards for exact equity with no or
+	 * one board card, otherwise use sample boards. Enough for 3 way hold'em
+	 * and omaha hi/lo preflop, about half a second on one thread. Not scaled
+	 * by the number of threads, so results are the same on every machine.
+	 */
+	private static final long EXACT_COST = 12000000;
+	/** number of boards between checks for cancellation */
+	private static final int CHECK_BOARDS = 1024;
 
 	/** check board is either null or no more than 5 cards */
 	private static void validateBoard(String[] board) {
@@ -66,18 +84,121 @@ public class HEPoker extends Poker {
 		}
 		
 		// cards not used by hands or board
-		final String[] deck = Poker.remdeck(holeCards, board, blockers);
+		// convert to integer cards once, all valuation is done with them
+		final int[] deck = Poker.intCards(Poker.remdeck(holeCards, board, blockers));
+		final int[] boardInt = Poker.intCards(board);
+		final int[][] holeCardsInt = new int[holeCards.length][];
+		for (int n = 0; n < holeCards.length; n++) {
+			holeCardsInt[n] = Poker.intCards(holeCards[n]);
+		}
+		
+		if (board.length == 0 && holeCards.length == 2 && (blockers == null || blockers.length == 0) && !omaha && !hilo && value == Value.hiValue) {
+			// heads up preflop, from precomputed table if available
+			final HEPreflopTable table = HEPreflopTable.getInstance();
+			if (table != null) {
+				return table.equity(holeCardsInt, deck.length);
+			}
+		}
 		
 		if (board.length <= 1) {
-			// monte carlo (random sample boards)
-			return equityImpl(new HEBoardSample(deck, board, 10000), holeCards);
+			// all boards that are different by suit, if there aren't too many
+			final long[] masks = new long[holeCards.length + 2];
+			for (int n = 0; n < holeCards.length; n++) {
+				masks[n] = Poker.cardsMask(holeCardsInt[n]);
+			}
+			masks[holeCards.length] = Poker.cardsMask(boardInt);
+			masks[holeCards.length + 1] = blockers != null ? Poker.cardsMask(Poker.intCards(blockers)) : 0;
+			final SuitSymmetry sym = SuitSymmetry.create(masks);
+			final long cost = ((long) MathsUtil.binomialCoefficientFast(deck.length, 5 - board.length)) * boardCost(holeCardsInt) / sym.size();
+			
+			if (cost <= EXACT_COST) {
+				return equityImpl(new HEBoardEnum(deck, boardInt), holeCardsInt, sym);
+				
+			} else {
+				// monte carlo (random sample boards)
+				return equityImpl(new HEBoardSample(deck, boardInt, random()), holeCardsInt, null);
+			}
 			
 		} else {
 			// all possible boards
-			return equityImpl(new HEBoardEnum(deck, board), holeCards);
+			return equityImpl(new HEBoardEnum(deck, boardInt), holeCardsInt, null);
 		}
 	}
 
+	/**
+	 * Calculate the exact equity of each hand for the flop or turn board, and
+	 * for every turn and river card that can come next (see Runout). All the
+	 * equities are counted in one pass over the complete boards, with a task
+	 * for each turn card (or one for the turn) that prepares the flop and turn
+	 * once, and values each river once for both the turn and river equities.
+	 */
+	public Runout runouts(String[] board, String[][] holeCards, String[] blockers) {
+		System.out.println("holdem/omaha runouts: " + Arrays.deepToString(holeCards) + " board: " + Arrays.toString(board) + " blockers: " + Arrays.toString(blockers));
+		if (board == null || board.length < 3 || board.length > 4) {
+			throw new RuntimeException("invalid board: " + Arrays.toString(board));
+		}
+		for (String[] hole : holeCards) {
+			validateHoleCards(hole);
+		}
+		
+		final int[] deck = Poker.intCards(Poker.remdeck(holeCards, board, blockers));
+		final int[] boardInt = Poker.intCards(board);
+		final int[][] holeCardsInt = new int[holeCards.length][];
+		for (int n = 0; n < holeCards.length; n++) {
+			holeCardsInt[n] = Poker.intCards(holeCards[n]);
+		}
+		final boolean lowPossible = lowPossible(boardInt);
+		final SamplePolicy policy = policy();
+		
+		if (boardInt.length == 4) {
+			return new RunoutTask(null, boardInt, deck, holeCardsInt, lowPossible, policy).call();
+		}
+		
+		final List<RunoutTask> tasks = new ArrayList<>();
+		for (int t = 0; t < deck.length; t++) {
+			final int[] turn = Arrays.copyOf(boardInt, 4);
+			turn[3] = deck[t];
+			final int[] rivers = new int[deck.length - 1];
+			System.arraycopy(deck, 0, rivers, 0, t);
+			System.arraycopy(deck, t + 1, rivers, t, rivers.length - t);
+			tasks.add(new RunoutTask(Poker.intCardString(deck[t]), turn, rivers, holeCardsInt, lowPossible, policy));
+		}
+		
+		final MEquity[] meqs = MEquityUtil.createMEquitiesHL(hilo, holeCards.length, deck.length, true);
+		current(meqs, boardInt, holeCardsInt, lowPossible);
+		// every board is counted twice, once for each order of the turn and river
+		final MEquityCounts counts = new MEquityCounts(meqs);
+		final Runout[] turns = ThreadUtil.invokeAll(tasks).toArray(new Runout[deck.length]);
+		for (RunoutTask task : tasks) {
+			counts.add(task.counts);
+		}
+		counts.summarise(meqs);
+		return new Runout(null, meqs, turns);
+	}
+	
+	/**
+	 * Parse a range for this game (see Range)
+	 */
+	public Range range(String range) {
+		return Range.parse(range, omaha);
+	}
+	
+	/**
+	 * Calculate the high equity of each range against the other ranges for
+	 * the given board (0-5 cards, or null) and blockers (may be null)
+	 */
+	public RangeEquity[] rangeEquity(String[] board, Range[] ranges, String[] blockers) {
+		System.out.println("holdem/omaha range equity: " + Arrays.toString(ranges) + " board: " + Arrays.toString(board) + " blockers: " + Arrays.toString(blockers));
+		if (hilo) {
+			throw new RuntimeException("range equity is high only");
+		}
+		if (ranges.length < 2) {
+			throw new RuntimeException("need at least two ranges");
+		}
+		validateBoard(board);
+		return new HERangeEquity(omaha, value, board, ranges, blockers).equity(policy(), random());
+	}
+	
 	@Override
 	public int value(String[] board, String[] hole) {
 		validateBoard(board);
@@ -88,39 +209,75 @@ public class HEPoker extends Poker {
 			return 0;
 			
 		} else {
-			return heValue(value, board, hole, new String[5]);
+			return heValue(value, Poker.intCards(board), Poker.intCards(hole), new int[5]);
 		}
 	}
 	
 	/**
-	 * Calc exact tex/omaha hand equity for each hand for given board
+	 * Calc exact tex/omaha hand equity for each hand for given board, valuing
+	 * only one of each set of boards equivalent by suit if the symmetry is
+	 * not null.
 	 */
-	private MEquity[] equityImpl(final HEBoard heboard, final String[][] holeCards) {
+	private MEquity[] equityImpl(final HEBoard heboard, final int[][] holeCards, final SuitSymmetry sym) {
+		
+		final boolean lowPossible = lowPossible(heboard.current);
+		
+		// note: HL MEquity actually contains 3 equity types, so can be treated as high only
+		final MEquity[] meqs = MEquityUtil.createMEquitiesHL(hilo, holeCards.length, heboard.deck.length, heboard.exact());
+		current(meqs, heboard.current, holeCards, lowPossible);
 		
+		// get equity
+		final MEquityCounts counts = counts(heboard, holeCards, lowPossible, sym, meqs);
+		counts.summarise(meqs);
+		// XXX shouldn't be here, just need to store pick and count on mequity
+		counts.summariseOuts(meqs, heboard.pick());
+		return meqs;
+	}
+	
+	/**
+	 * Get the relative cost of valuing the hands for one board, about 1 for
+	 * each hold'em high hand (a card mask valuation, see HEValues)
+	 */
+	private int boardCost(final int[][] holeCards) {
+		final int hand;
+		if (omaha) {
+			// omaha valuation, otherwise every combination of 2 hole and 3 board cards
+			hand = value == Value.hiValue && (!hilo || loValue == Value.afLow8Value) ? (hilo ? 5 : 4) : 60;
+		} else {
+			// card mask valuation, otherwise every 5 of the 7 cards
+			hand = value == Value.hiValue && (!hilo || loValue == Value.afLow8Value) ? (hilo ? 2 : 1) : 21;
+		}
+		return hand * holeCards.length;
+	}
+	
+	/**
+	 * Can a low be made with the board (0-5 cards, or null)
+	 */
+	private boolean lowPossible(final int[] board) {
 		// XXX low possible should really be a method on Value
-		final boolean lowPossible;
 		if (hilo) {
-			if (heboard.current != null && heboard.current.length > 2) {
+			if (board != null && board.length > 2) {
 				// only possible if there are no more than 2 high cards on board
-				lowPossible = heboard.current.length - lowCount(heboard.current, false) <= 2;
+				return board.length - lowCount(board) <= 2;
 			} else {
-				lowPossible = true;
+				return true;
 			}
 		} else {
-			lowPossible = false;
+			return false;
 		}
-		
-		// note: HL MEquity actually contains 3 equity types, so can be treated as high only
-		final MEquity[] meqs = MEquityUtil.createMEquitiesHL(hilo, holeCards.length, heboard.deck.length, heboard.exact());
-		final int[] hivals = new int[holeCards.length];
-		final int[] lovals = lowPossible ? new int[holeCards.length] : null;
-		final String[] temp = new String[5];
-		
-		// get current high hand values (not equity)
-		if (heboard.current != null) {
+	}
+	
+	/**
+	 * Set the current high and, if low is possible, low hand values (not
+	 * equity) of the hands with the board (0-5 cards, or null)
+	 */
+	private void current(final MEquity[] meqs, final int[] board, final int[][] holeCards, final boolean lowPossible) {
+		if (board != null) {
+			final int[] hivals = new int[holeCards.length];
+			final int[] temp = new int[5];
 			for (int n = 0; n < holeCards.length; n++) {
-				if (heboard.current.length >= 3) {
-					hivals[n] = heValue(value, heboard.current, holeCards[n], temp);
+				if (board.length >= 3) {
+					hivals[n] = heValue(value, board, holeCards[n], temp);
 				}
 			}
 			MEquityUtil.updateCurrent(meqs, Equity.Type.HI_ONLY, hivals);
@@ -128,38 +285,119 @@ public class HEPoker extends Poker {
 			if (lowPossible) {
 				MEquityUtil.updateCurrent(meqs, Equity.Type.HILO_HI_HALF, hivals);
 				// get current low values
+				final int[] lovals = new int[holeCards.length];
 				for (int n = 0; n < holeCards.length; n++) {
-					lovals[n] = heValue(loValue, heboard.current, holeCards[n], temp);
+					lovals[n] = heValue(loValue, board, holeCards[n], temp);
 				}
 				MEquityUtil.updateCurrent(meqs, Equity.Type.HILO_AFLO8_HALF, lovals);
 			}
 		}
+	}
+	
+	/**
+	 * Count the wins and ties of each hand for all boards, splitting the
+	 * boards between threads if there are enough of them, or for sampled
+	 * boards, until the sample policy says to stop. Exact counts check the
+	 * sample policy for cancellation as they go.
+	 */
+	private MEquityCounts counts(final HEBoard heboard, final int[][] holeCards, final boolean lowPossible, final SuitSymmetry sym, final MEquity[] meqs) {
+		final SamplePolicy policy = policy();
+		final MEquityCounts counts;
+		if (heboard.exact()) {
+			final HEBoardEnum heboardEnum = (HEBoardEnum) heboard;
+			final int count = heboardEnum.count();
+			// about 4 tasks per thread, unless there is too little work
+			final int parallelism = ThreadUtil.getParallelism();
+			final int leaf = Math.max(Math.max(MIN_TASK_BOARDS, MIN_TASK_COST / boardCost(holeCards)), count / (parallelism * 4));
+			if (count > leaf && parallelism > 1) {
+				final BoardsTask task = new BoardsTask(heboardEnum, holeCards, lowPossible, sym, meqs, policy, leaf, 0, count);
+				ThreadUtil.getPool().invoke(task);
+				counts = task.counts;
+				
+			} else {
+				counts = new MEquityCounts(meqs);
+				boards(heboard, count, holeCards, lowPossible, sym, policy, counts);
+			}
+			
+		} else {
+			counts = new MEquityCounts(meqs);
+			final long start = System.nanoTime();
+			int count;
+			while ((count = policy.next(counts, start)) > 0) {
+				boards(heboard, count, holeCards, lowPossible, sym, policy, counts);
+			}
+			System.out.println("sampled " + counts.getCount() + " boards");
+		}
+		return counts;
+	}
+	
+	/**
+	 * Get the counts for the exact high equity of the hands with no board and
+	 * no blockers (for HEPreflopTable)
+	 */
+	MEquityCounts preflopCounts(final int[][] holeCards) {
+		final long[] masks = new long[holeCards.length];
+		long mask = 0;
+		for (int n = 0; n < holeCards.length; n++) {
+			masks[n] = Poker.cardsMask(holeCards[n]);
+			mask |= masks[n];
+		}
+		final int[] deck = new int[52 - Long.bitCount(mask)];
+		for (int c = 0, n = 0; c < 52; c++) {
+			if ((mask & Poker.cardMask(c)) == 0) {
+				deck[n++] = c;
+			}
+		}
+		final HEBoardEnum heboard = new HEBoardEnum(deck, new int[0]);
+		final MEquity[] meqs = MEquityUtil.createMEquitiesHL(false, holeCards.length, deck.length, true);
+		return counts(heboard, holeCards, false, SuitSymmetry.create(masks), meqs);
+	}
+	
+	/**
+	 * Count the wins and ties of each hand for the given number of boards of
+	 * the given board enumerator, or if the symmetry is not null, count only
+	 * the smallest board of each set of equivalent boards, once for each board
+	 * in the set. Checks the policy every CHECK_BOARDS boards.
+	 */
+	private void boards(final HEBoard heboard, final int count, final int[][] holeCards, final boolean lowPossible, final SuitSymmetry sym, final SamplePolicy policy, final MEquityCounts counts) {
+		final int[] hivals = new int[holeCards.length];
+		final int[] lovals = lowPossible ? new int[holeCards.length] : null;
+		// values of all hands, preparing each board once
+		final HEValues values = new HEValues(omaha, value, lowPossible ? loValue : null, holeCards);
 		
-		// get equity
-		final int count = heboard.count();
 		final int pick = heboard.pick();
-		final String[] outs = pick <= 2 ? new String[pick] : null;
-		int hiloCount = 0;
+		final int[] outs = pick <= 2 ? new int[pick] : null;
+		// first board position changed since the last board valued
+		int changed = 0;
 		
 		for (int p = 0; p < count; p++) {
+			if (p % CHECK_BOARDS == 0) {
+				policy.check();
+			}
+			
 			// get board
 			heboard.next();
+			changed = Math.min(changed, heboard.changed);
 			//System.out.println("board p: " + p + " current: " + Arrays.toString(heboard.current) + " next: " + Arrays.toString(heboard.board));
 			
-			// hi equity
-			for (int i = 0; i < holeCards.length; i++) {
-				hivals[i] = heValue(value, heboard.board, holeCards[i], temp);
+			final long boardMask = Poker.cardsMask(heboard.board);
+			final int weight = sym != null ? sym.weight(boardMask) : 1;
+			if (weight == 0) {
+				// equivalent to another board
+				continue;
 			}
 			
+			// hi and lo values
+			values.values(heboard.board, changed, hivals, lovals);
+			changed = 5;
+			
 			// low equity - only counts if at least one hand makes low
 			boolean hasLow = false;
 			if (lowPossible) {
 				for (int i = 0; i < holeCards.length; i++) {
-					int v = heValue(loValue, heboard.board, holeCards[i], temp);
-					if (v > 0) {
+					if (lovals[i] > 0) {
 						hasLow = true;
 					}
-					lovals[i] = v;
 				}
 			}
 			
@@ -171,27 +409,171 @@ public class HEPoker extends Poker {
 			}
 			
 			if (hasLow) {
-				hiloCount++;
-				MEquityUtil.updateMEquitiesHL(meqs, hivals, lovals, outs);
+				counts.updateHL(hivals, lovals, outs, weight);
 				
 			} else {
 				// high winner
-				MEquityUtil.updateMEquities(meqs, Equity.Type.HI_ONLY, hivals, null);
+				counts.update(Equity.Type.HI_ONLY, hivals, null, weight);
 			}
 		}
-
-		MEquityUtil.summariseMEquities(meqs, count, hiloCount);
-		// XXX shouldn't be here, just need to store pick and count on mequity
-		MEquityUtil.summariseOuts(meqs, pick, count);
-		return meqs;
 	}
 	
-
+	/**
+	 * Count the wins and ties of a range of board indexes of the board
+	 * enumeration, splitting the range into sub tasks until it is small
+	 * enough. Each task has its own counts which are added together.
+	 */
+	private class BoardsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final HEBoardEnum heboard;
+		private final int[][] holeCards;
+		private final boolean lowPossible;
+		private final SuitSymmetry sym;
+		/** equities with current values */
+		private final MEquity[] meqs;
+		/** policy of the calling thread, for cancellation */
+		private final SamplePolicy policy;
+		/** largest range not to split */
+		private final int leaf;
+		private final int start, end;
+		/** counts for the range */
+		MEquityCounts counts;
+		
+		public BoardsTask(HEBoardEnum heboard, int[][] holeCards, boolean lowPossible, SuitSymmetry sym, MEquity[] meqs, SamplePolicy policy, int leaf, int start, int end) {
+			this.heboard = heboard;
+			this.holeCards = holeCards;
+			this.lowPossible = lowPossible;
+			this.sym = sym;
+			this.meqs = meqs;
+			this.policy = policy;
+			this.leaf = leaf;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			final int size = end - start;
+			if (size > leaf) {
+				final int mid = start + size / 2;
+				final BoardsTask t1 = new BoardsTask(heboard, holeCards, lowPossible, sym, meqs, policy, leaf, start, mid);
+				final BoardsTask t2 = new BoardsTask(heboard, holeCards, lowPossible, sym, meqs, policy, leaf, mid, end);
+				invokeAll(t1, t2);
+				counts = t1.counts;
+				counts.add(t2.counts);
+				
+			} else {
+				counts = new MEquityCounts(meqs);
+				final HEBoard range = new HEBoardEnum(heboard.deck, heboard.current, start, end);
+				boards(range, end - start, holeCards, lowPossible, sym, policy, counts);
+			}
+		}
+	}
+	
+	/**
+	 * Count the equity of each hand for a turn board and each river, with the
+	 * rivers as the outs of the turn
+	 */
+	private class RunoutTask implements Callable<Runout> {
+		/** the turn card, or null if the turn is the starting board */
+		private final String card;
+		/** the 4 card board */
+		private final int[] board;
+		/** the cards that can come on the river */
+		private final int[] deck;
+		private final int[][] holeCards;
+		private final boolean lowPossible;
+		/** policy of the calling thread, for cancellation */
+		private final SamplePolicy policy;
+		/** counts for the turn */
+		MEquityCounts counts;
+		
+		public RunoutTask(String card, int[] board, int[] deck, int[][] holeCards, boolean lowPossible, SamplePolicy policy) {
+			this.card = card;
+			this.board = board;
+			this.deck = deck;
+			this.holeCards = holeCards;
+			this.lowPossible = lowPossible;
+			this.policy = policy;
+		}
+		
+		@Override
+		public Runout call() {
+			policy.check();
+			final int hands = holeCards.length;
+			final MEquity[] meqs = MEquityUtil.createMEquitiesHL(hilo, hands, deck.length, true);
+			// current values as equity() would have them for the turn
+			current(meqs, board, holeCards, lowPossible(board));
+			counts = new MEquityCounts(meqs);
+			
+			final HEValues values = new HEValues(omaha, value, lowPossible ? loValue : null, holeCards);
+			final int[] hivals = new int[hands];
+			final int[] lovals = lowPossible ? new int[hands] : null;
+			final int[] river = Arrays.copyOf(board, 5);
+			final int[] outs = new int[1];
+			final Runout[] rivers = new Runout[deck.length];
+			
+			for (int r = 0; r < deck.length; r++) {
+				river[4] = outs[0] = deck[r];
+				// only the first river prepares the turn
+				values.values(river, r == 0 ? 0 : 4, hivals, lovals);
+				
+				boolean hasLow = false;
+				if (lowPossible) {
+					for (int i = 0; i < hands; i++) {
+						if (lovals[i] > 0) {
+							hasLow = true;
+						}
+					}
+				}
+				
+				// the river equity is just who wins with the final values
+				final MEquity[] rmeqs = MEquityUtil.createMEquitiesHL(hilo, hands, deck.length - 1, true);
+				MEquityUtil.updateCurrent(rmeqs, Equity.Type.HI_ONLY, hivals);
+				if (lowPossible(river)) {
+					MEquityUtil.updateCurrent(rmeqs, Equity.Type.HILO_HI_HALF, hivals);
+					MEquityUtil.updateCurrent(rmeqs, Equity.Type.HILO_AFLO8_HALF, lovals);
+				}
+				final MEquityCounts rcounts = new MEquityCounts(rmeqs);
+				
+				if (hasLow) {
+					counts.updateHL(hivals, lovals, outs);
+					rcounts.updateHL(hivals, lovals, null);
+				} else {
+					counts.update(Equity.Type.HI_ONLY, hivals, outs);
+					rcounts.update(Equity.Type.HI_ONLY, hivals, null);
+				}
+				rcounts.summarise(rmeqs);
+				rivers[r] = new Runout(Poker.intCardString(deck[r]), rmeqs, null);
+			}
+			
+			counts.summarise(meqs);
+			counts.summariseOuts(meqs, 1);
+			return new Runout(card, meqs, rivers);
+		}
+	}
+	
 	/**
 	 * Calculate value of holdem/omaha hand (using at least min cards from hand). 
 	 * Board can be 3-5 cards.
 	 */
-	private int heValue(final Value v, final String[] board, final String[] hole, final String[] temp) {
+	private int heValue(final Value v, final int[] board, final int[] hole, final int[] temp) {
+		if (!omaha && (v == Value.hiValue || v == Value.afLow8Value)) {
+			// any 5 of the cards
+			if (board.length + hole.length < 5) {
+				return 0;
+			}
+			final long mask = Poker.cardsMask(board) | Poker.cardsMask(hole);
+			return v == Value.hiValue ? MaskValue.hiValue(mask) : MaskValue.afLow8Value(mask);
+			
+		} else if (omaha && (v == Value.hiValue || v == Value.afLow8Value)) {
+			// exactly 2 hole cards and 3 board cards
+			final OmahaValue ov = new OmahaValue(new int[][] { hole });
+			ov.setBoard(board);
+			final int[] hv = new int[1], lv = new int[1];
+			ov.values(hv, lv);
+			return v == Value.hiValue ? hv[0] : lv[0];
+		}
 		int hv = 0;
 		for (int n = min; n <= 2; n++) {
 			final int nh = MathsUtil.binomialCoefficientFast(hole.length, n);
@@ -0,0 +1,201 @@
+package pet.eq.impl;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+import pet.eq.*;
+
+/**
+ * Precomputed exact heads up hold'em preflop high equity of every pair of
+ * hands, with no blockers. Run main to create the file, which is memory
+ * mapped when first used if it exists.
+ * <p>
+ * The file is a header (magic, version, number of records, ints per record),
+ * the record number and swap flag (record << 1 | swap, or -1 if the hands
+ * share a card) of each pair of hand indexes i < j, then the records, which
+ * are the counts of each pair of hands that are not equivalent by suit. All
+ * values are big endian ints.
+ */
+public class HEPreflopTable {
+	
+	/** system property of the table file name */
+	public static final String FILE_PROPERTY = "pet.eq.preflop";
+	/** default table file name */
+	public static final String FILE_NAME = "hupreflop.dat";
+	
+	private static final int MAGIC = 0x48555046;
+	private static final int VERSION = 1;
+	private static final int HEADER = 4;
+	/** number of hold'em hands */
+	private static final int HOLES = 1326;
+	/** number of pairs of hand indexes */
+	private static final int PAIRS = HOLES * (HOLES - 1) / 2;
+	
+	private static HEPreflopTable instance;
+	private static boolean loaded;
+	
+	/**
+	 * Get the table, loading it if necessary, or return null if there is no
+	 * table file
+	 */
+	static synchronized HEPreflopTable getInstance() {
+		if (!loaded) {
+			loaded = true;
+			final File file = new File(System.getProperty(FILE_PROPERTY, FILE_NAME));
+			if (file.exists()) {
+				try {
+					instance = new HEPreflopTable(file);
+					System.out.println("loaded preflop table " + file);
+				} catch (Exception e) {
+					System.out.println("could not load preflop table " + file + ": " + e);
+				}
+			}
+		}
+		return instance;
+	}
+	
+	/**
+	 * Get the index (0-1325) of the two card hand
+	 */
+	private static int holeIndex(final int[] hole) {
+		final int a = Math.min(hole[0], hole[1]), b = Math.max(hole[0], hole[1]);
+		return b * (b - 1) / 2 + a;
+	}
+	
+	/**
+	 * Get the index of the pair of hand indexes, where i < j
+	 */
+	private static int pairIndex(final int i, final int j) {
+		return j * (j - 1) / 2 + i;
+	}
+	
+	/** record number and swap flag of each pair of hands */
+	private final IntBuffer index;
+	/** counts of each record */
+	private final IntBuffer records;
+	/** ints per record */
+	private final int recordInts;
+	
+	private HEPreflopTable(final File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final FileChannel ch = raf.getChannel();
+			// mapping remains valid after channel is closed
+			final IntBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).asIntBuffer();
+			if (buf.get(0) != MAGIC || buf.get(1) != VERSION) {
+				throw new RuntimeException("invalid preflop table");
+			}
+			final int count = buf.get(2);
+			recordInts = buf.get(3);
+			if (buf.limit() != HEADER + PAIRS + count * recordInts) {
+				throw new RuntimeException("invalid preflop table size");
+			}
+			buf.position(HEADER);
+			index = buf.slice();
+			buf.position(HEADER + PAIRS);
+			records = buf.slice();
+		}
+	}
+	
+	/**
+	 * Get the equity of the two hands (integer cards) with no board or
+	 * blockers
+	 */
+	MEquity[] equity(final int[][] holeCards, final int remCards) {
+		int i = holeIndex(holeCards[0]), j = holeIndex(holeCards[1]);
+		boolean swap = false;
+		if (i > j) {
+			final int t = i;
+			i = j;
+			j = t;
+			swap = true;
+		}
+		final int r = index.get(pairIndex(i, j));
+		if (r < 0) {
+			throw new RuntimeException("hands share a card: " + Arrays.deepToString(holeCards));
+		}
+		swap ^= (r & 1) != 0;
+		
+		final MEquity[] meqs = MEquityUtil.createMEquitiesHL(false, 2, remCards, true);
+		// the record might be for the hands the other way round
+		final MEquity[] rmeqs = swap ? new MEquity[] { meqs[1], meqs[0] } : meqs;
+		final MEquityCounts counts = new MEquityCounts(rmeqs);
+		counts.add(records, (r >>> 1) * recordInts);
+		counts.summarise(rmeqs);
+		counts.summariseOuts(rmeqs, 5);
+		return meqs;
+	}
+	
+	/**
+	 * Create the table file
+	 */
+	public static void main(final String[] args) throws Exception {
+		if (args.length != 1) {
+			System.out.println("usage: HEPreflopTable file");
+			return;
+		}
+		
+		final int[][] holes = new int[HOLES][];
+		for (int b = 1; b < 52; b++) {
+			for (int a = 0; a < b; a++) {
+				holes[b * (b - 1) / 2 + a] = new int[] { a, b };
+			}
+		}
+		
+		// find the pairs of hands that are not equivalent by suit
+		final int[] index = new int[PAIRS];
+		final Map<List<Long>, Integer> recordMap = new HashMap<List<Long>, Integer>();
+		final List<int[][]> recordHoles = new ArrayList<int[][]>();
+		for (int j = 0; j < HOLES; j++) {
+			final long mj = Poker.cardsMask(holes[j]);
+			for (int i = 0; i < j; i++) {
+				final long mi = Poker.cardsMask(holes[i]);
+				if ((mi & mj) != 0) {
+					index[pairIndex(i, j)] = -1;
+					continue;
+				}
+				// smallest of either way round
+				final long[] c1 = SuitSymmetry.canonical(new long[] { mi, mj });
+				final long[] c2 = SuitSymmetry.canonical(new long[] { mj, mi });
+				final boolean swap = c2[0] < c1[0] || (c2[0] == c1[0] && c2[1] < c1[1]);
+				final long[] c = swap ? c2 : c1;
+				final List<Long> key = Arrays.asList(c[0], c[1]);
+				Integer r = recordMap.get(key);
+				if (r == null) {
+					r = recordHoles.size();
+					recordMap.put(key, r);
+					recordHoles.add(swap ? new int[][] { holes[j], holes[i] } : new int[][] { holes[i], holes[j] });
+				}
+				index[pairIndex(i, j)] = (r << 1) | (swap ? 1 : 0);
+			}
+		}
+		System.out.println("records: " + recordHoles.size());
+		
+		final HEPoker poker = new HEPoker(false, false);
+		try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[0])))) {
+			ByteBuffer buf = null;
+			for (int r = 0; r < recordHoles.size(); r++) {
+				final MEquityCounts counts = poker.preflopCounts(recordHoles.get(r));
+				if (buf == null) {
+					os.writeInt(MAGIC);
+					os.writeInt(VERSION);
+					os.writeInt(recordHoles.size());
+					os.writeInt(counts.intSize());
+					for (int n = 0; n < index.length; n++) {
+						os.writeInt(index[n]);
+					}
+					buf = ByteBuffer.allocate(counts.intSize() * 4);
+				}
+				buf.clear();
+				counts.put(buf.asIntBuffer());
+				os.write(buf.array());
+				if (r % 1000 == 0) {
+					System.out.println(r + ": " + Arrays.toString(Poker.intCardsString(recordHoles.get(r)[0])) + " v " + Arrays.toString(Poker.intCardsString(recordHoles.get(r)[1])));
+				}
+			}
+		}
+		System.out.println("done");
+	}
+
+}
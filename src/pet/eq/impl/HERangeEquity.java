@@ -0,0 +1,491 @@
+package pet.eq.impl;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import pet.eq.*;
+
+/**
+ * High equity of hold'em or omaha ranges against each other (for HEPoker).
+ * <p>
+ * Each board is valued once for each distinct combination of all the ranges.
+ * For two ranges, each combination is compared with the other range in value
+ * order, using the sums of the weights of the other range's combinations
+ * containing each subset of cards to leave out the ones that share cards
+ * (inclusion-exclusion). For more ranges, every tuple of combinations that
+ * don't share cards is compared. The boards are split between threads.
+ */
+class HERangeEquity {
+	
+	/**
+	 * maximum number of combination valuations for exact equity, otherwise
+	 * use sample boards. Threads only make it faster, so a spot is exact or
+	 * sampled on any machine.
+	 */
+	private static final long EXACT_EVALS = 4000000;
+	/** number of boards between checks for cancellation */
+	private static final int CHECK_BOARDS = 64;
+	/** largest card subset for the weight sums, otherwise compare every pair */
+	private static final int MAX_LEVEL = 4;
+	
+	private final boolean omaha;
+	private final Value value;
+	private final Range[] ranges;
+	/** starting board (integer cards) */
+	private final int[] board;
+	/** remaining cards not on board or blocked */
+	private final int[] deck;
+	/** distinct combinations of all the ranges that don't share cards with the board or blockers */
+	private final int[][] combos;
+	private final long[] masks;
+	/** for each range, the distinct combination index of each valid combination */
+	private final int[][] comboIndex;
+	/** for each range, the range combination index of each valid combination */
+	private final int[][] rangeIndex;
+	/** for each range, the weight of each valid combination */
+	private final int[][] weights;
+	/** largest card subset for the weight sums of two ranges, or 0 to compare every tuple */
+	private final int levels;
+	/** size and colex index of each non empty card subset of each distinct combination */
+	private final int[][] subLevel, subIndex;
+	
+	public HERangeEquity(boolean omaha, Value value, String[] board, Range[] ranges, String[] blockers) {
+		this.omaha = omaha;
+		this.value = value;
+		this.ranges = ranges;
+		this.board = board != null ? Poker.intCards(board) : new int[0];
+		final long dead = Poker.cardsMask(this.board) | (blockers != null ? Poker.cardsMask(Poker.intCards(blockers)) : 0);
+		final int[] deck = new int[52 - Long.bitCount(dead)];
+		for (int c = 0, n = 0; c < 52; c++) {
+			if ((dead & Poker.cardMask(c)) == 0) {
+				deck[n++] = c;
+			}
+		}
+		this.deck = deck;
+		
+		// distinct combinations
+		final Map<Long, Integer> index = new HashMap<Long, Integer>();
+		final List<int[]> combos = new ArrayList<int[]>();
+		comboIndex = new int[ranges.length][];
+		rangeIndex = new int[ranges.length][];
+		weights = new int[ranges.length][];
+		final int[] maxSize = new int[ranges.length];
+		for (int p = 0; p < ranges.length; p++) {
+			final Range range = ranges[p];
+			final int[] ci = new int[range.size()], ri = new int[range.size()], w = new int[range.size()];
+			int k = 0;
+			for (int n = 0; n < range.size(); n++) {
+				final int[] combo = range.combos[n];
+				if (omaha ? combo.length < 4 || combo.length > 5 : combo.length != 2) {
+					throw new RuntimeException("invalid range for game: " + range);
+				}
+				final long mask = Poker.cardsMask(combo);
+				if ((mask & dead) != 0) {
+					continue;
+				}
+				Integer i = index.get(mask);
+				if (i == null) {
+					i = combos.size();
+					index.put(mask, i);
+					combos.add(combo);
+				}
+				ci[k] = i;
+				ri[k] = n;
+				w[k] = range.weights[n];
+				maxSize[p] = Math.max(maxSize[p], combo.length);
+				k++;
+			}
+			if (k == 0) {
+				throw new RuntimeException("no combinations of range possible: " + range);
+			}
+			comboIndex[p] = Arrays.copyOf(ci, k);
+			rangeIndex[p] = Arrays.copyOf(ri, k);
+			weights[p] = Arrays.copyOf(w, k);
+		}
+		this.combos = combos.toArray(new int[combos.size()][]);
+		this.masks = new long[this.combos.length];
+		for (int n = 0; n < masks.length; n++) {
+			masks[n] = Poker.cardsMask(this.combos[n]);
+		}
+		
+		// card subsets of each combination (combinations are in card order)
+		final int l = ranges.length == 2 ? Math.min(maxSize[0], maxSize[1]) : 0;
+		levels = l <= MAX_LEVEL ? l : 0;
+		subLevel = new int[this.combos.length][];
+		subIndex = new int[this.combos.length][];
+		if (levels > 0) {
+			for (int n = 0; n < this.combos.length; n++) {
+				final int[] combo = this.combos[n];
+				final int[] sl = new int[1 << combo.length], si = new int[1 << combo.length];
+				int s = 0;
+				for (int b = 1; b < (1 << combo.length); b++) {
+					if (Integer.bitCount(b) <= levels) {
+						int level = 0, idx = 0;
+						for (int c = 0; c < combo.length; c++) {
+							if ((b & (1 << c)) != 0) {
+								idx += MathsUtil.binomialCoefficientFast(combo[c], ++level);
+							}
+						}
+						sl[s] = level;
+						si[s] = idx;
+						s++;
+					}
+				}
+				subLevel[n] = Arrays.copyOf(sl, s);
+				subIndex[n] = Arrays.copyOf(si, s);
+			}
+		}
+	}
+	
+	/**
+	 * Get the equity of each range, for all boards if there aren't too many,
+	 * otherwise for sample boards until the sample policy says to stop
+	 */
+	public RangeEquity[] equity(final SamplePolicy policy, final SplitRandom r) {
+		final int k = 5 - board.length;
+		final int boards = MathsUtil.binomialCoefficientFast(deck.length, k);
+		// valuations or comparisons per board
+		double cost = combos.length;
+		if (levels == 0) {
+			for (int[] ci : comboIndex) {
+				cost *= ci.length;
+			}
+		}
+		final int threads = ThreadUtil.getParallelism();
+		final boolean exact = ((double) boards) * cost <= EXACT_EVALS;
+		
+		final List<BoardsTask> tasks = new ArrayList<BoardsTask>();
+		long count = 0;
+		float ci = 0;
+		if (exact) {
+			for (int t = 0; t < threads; t++) {
+				final int start = (int) ((long) boards * t / threads), end = (int) ((long) boards * (t + 1) / threads);
+				if (end > start) {
+					final BoardsTask task = new BoardsTask(new HEBoardEnum(deck, board, start, end), policy);
+					task.boards = end - start;
+					tasks.add(task);
+				}
+			}
+			invoke(tasks);
+			count = boards;
+			System.out.println("range equity: enumerated " + count + " boards");
+		
+		} else {
+			for (int t = 0; t < threads; t++) {
+				tasks.add(new BoardsTask(new HEBoardSample(deck, board, r.split()), policy));
+			}
+			final long start = System.nanoTime();
+			int samples;
+			while ((samples = policy.next(count, ci, start, SamplePolicy.BATCH * tasks.size())) > 0) {
+				// about a batch for each task
+				for (int t = 0; t < tasks.size(); t++) {
+					tasks.get(t).boards = (samples * (t + 1)) / tasks.size() - (samples * t) / tasks.size();
+				}
+				invoke(tasks);
+				count += samples;
+				ci = 0;
+				for (int p = 0; p < ranges.length; p++) {
+					ci = Math.max(ci, ci(tasks, p));
+				}
+			}
+			System.out.println("range equity: sampled " + count + " boards");
+		}
+		
+		// add up the tasks
+		final RangeEquity[] reqs = new RangeEquity[ranges.length];
+		for (int p = 0; p < ranges.length; p++) {
+			final RangeEquity re = new RangeEquity(ranges[p]);
+			Arrays.fill(re.comboEquity, Float.NaN);
+			double num = 0, den = 0;
+			final double[] cnum = new double[comboIndex[p].length], cden = new double[comboIndex[p].length];
+			for (BoardsTask task : tasks) {
+				for (int n = 0; n < cnum.length; n++) {
+					cnum[n] += task.num[p][n];
+					cden[n] += task.den[p][n];
+				}
+			}
+			for (int n = 0; n < cnum.length; n++) {
+				num += cnum[n];
+				den += cden[n];
+			}
+			if (den == 0) {
+				throw new RuntimeException("ranges have no combinations without shared cards");
+			}
+			for (int n = 0; n < cnum.length; n++) {
+				if (cden[n] > 0) {
+					re.comboEquity[rangeIndex[p][n]] = (float) (cnum[n] * 100 / cden[n]);
+					re.comboWeight[rangeIndex[p][n]] = (float) (cden[n] * 100 / den);
+				}
+			}
+			re.equity = (float) (num * 100 / den);
+			re.exact = exact;
+			re.count = count;
+			re.ci = exact ? 0 : ci(tasks, p);
+			reqs[p] = re;
+		}
+		return reqs;
+	}
+	
+	private static void invoke(final List<BoardsTask> tasks) {
+		ThreadUtil.invokeAll(tasks);
+	}
+	
+	/**
+	 * Get the 95% confidence interval of the equity percentage of the range
+	 * from the equity of each sample board
+	 */
+	private static float ci(final List<BoardsTask> tasks, final int p) {
+		long n = 0;
+		double sum = 0, sqsum = 0;
+		for (BoardsTask task : tasks) {
+			n += task.count;
+			sum += task.eqsum[p];
+			sqsum += task.eqsqsum[p];
+		}
+		if (n == 0) {
+			return 100;
+		}
+		final double mean = sum / n;
+		return (float) (196 * Math.sqrt(Math.max(0, sqsum / n - mean * mean) / n));
+	}
+	
+	/**
+	 * Sums of equity for some boards, with its own valuation and weight sums.
+	 * Not thread safe.
+	 */
+	private class BoardsTask implements Callable<Void> {
+		private final HEBoard heboard;
+		/** policy of the calling thread, for cancellation */
+		private final SamplePolicy policy;
+		/** number of boards for next call */
+		int boards;
+		/** sums of equity shares and weights of each valid combination of each range */
+		final double[][] num, den;
+		/** number of boards with at least one deal, and sums of equity and equity squared of each range on those boards */
+		long count;
+		final double[] eqsum, eqsqsum;
+		/** equity shares and weights of each range for the current board */
+		private final double[] boardNum, boardDen;
+		/** value of each distinct combination for the current board, or -1 if it shares a card */
+		private final int[] vals;
+		private final HEValues heValues;
+		/** weight sums of each card subset of combinations with lower, lower or equal, and any value */
+		private final long[][] less, lessEq, total;
+		/** combinations sorted by value */
+		private final long[] sorted1, sorted2;
+		/** tuple of combinations */
+		private final int[] chosen, chosenVals;
+		
+		public BoardsTask(HEBoard heboard, SamplePolicy policy) {
+			this.heboard = heboard;
+			this.policy = policy;
+			num = new double[ranges.length][];
+			den = new double[ranges.length][];
+			int max = 0;
+			for (int p = 0; p < ranges.length; p++) {
+				num[p] = new double[comboIndex[p].length];
+				den[p] = new double[comboIndex[p].length];
+				max = Math.max(max, comboIndex[p].length);
+			}
+			eqsum = new double[ranges.length];
+			eqsqsum = new double[ranges.length];
+			boardNum = new double[ranges.length];
+			boardDen = new double[ranges.length];
+			vals = new int[combos.length];
+			heValues = new HEValues(omaha, value, null, combos);
+			if (levels > 0) {
+				less = sums();
+				lessEq = sums();
+				total = sums();
+				sorted1 = new long[max];
+				sorted2 = new long[max];
+				chosen = null;
+				chosenVals = null;
+			} else {
+				less = lessEq = total = null;
+				sorted1 = sorted2 = null;
+				chosen = new int[ranges.length];
+				chosenVals = new int[ranges.length];
+			}
+		}
+		
+		/** weight sums of each subset of each size */
+		private long[][] sums() {
+			final long[][] s = new long[levels + 1][];
+			for (int l = 0; l <= levels; l++) {
+				s[l] = new long[MathsUtil.binomialCoefficientFast(52, l)];
+			}
+			return s;
+		}
+		
+		@Override
+		public Void call() {
+			for (int b = 0; b < boards; b++) {
+				if (b % CHECK_BOARDS == 0) {
+					policy.check();
+				}
+				heboard.next();
+				values(heboard.board, heboard.changed);
+				Arrays.fill(boardNum, 0);
+				Arrays.fill(boardDen, 0);
+				if (levels > 0) {
+					compare(0, 1);
+					compare(1, 0);
+				} else {
+					tuples(0, 0, 1);
+				}
+				if (boardDen[0] > 0) {
+					count++;
+					for (int p = 0; p < ranges.length; p++) {
+						final double eq = boardNum[p] / boardDen[p];
+						eqsum[p] += eq;
+						eqsqsum[p] += eq * eq;
+					}
+				}
+			}
+			return null;
+		}
+		
+		/**
+		 * Value each distinct combination with the board
+		 */
+		private void values(final int[] b, final int changed) {
+			// all at once, then discard the ones that share cards
+			heValues.values(b, changed, vals, null);
+			final long boardMask = Poker.cardsMask(b);
+			for (int n = 0; n < combos.length; n++) {
+				if ((masks[n] & boardMask) != 0) {
+					vals[n] = -1;
+				}
+			}
+		}
+		
+		/**
+		 * Get the combinations of the range that don't share cards with the
+		 * board sorted by value, as value << 32 | valid combination index
+		 */
+		private int sort(final int p, final long[] sorted) {
+			final int[] ci = comboIndex[p];
+			int s = 0;
+			for (int n = 0; n < ci.length; n++) {
+				final int v = vals[ci[n]];
+				if (v >= 0) {
+					sorted[s++] = (((long) v) << 32) | n;
+				}
+			}
+			Arrays.sort(sorted, 0, s);
+			return s;
+		}
+		
+		/**
+		 * Add the equity shares and weights of each combination of range p
+		 * against range q for the current board
+		 */
+		private void compare(final int p, final int q) {
+			final int np = sort(p, sorted1), nq = sort(q, sorted2);
+			final int[] cp = comboIndex[p], cq = comboIndex[q], wp = weights[p], wq = weights[q];
+			for (int j = 0; j < nq; j++) {
+				add(total, cq[(int) sorted2[j]], wq[(int) sorted2[j]]);
+			}
+			int jl = 0, jle = 0;
+			for (int i = 0; i < np; i++) {
+				final int v = (int) (sorted1[i] >>> 32), k = (int) sorted1[i];
+				while (jl < nq && (int) (sorted2[jl] >>> 32) < v) {
+					add(less, cq[(int) sorted2[jl]], wq[(int) sorted2[jl]]);
+					jl++;
+				}
+				while (jle < nq && (int) (sorted2[jle] >>> 32) <= v) {
+					add(lessEq, cq[(int) sorted2[jle]], wq[(int) sorted2[jle]]);
+					jle++;
+				}
+				final int c = cp[k];
+				final long t = sum(total, c);
+				if (t > 0) {
+					final long l = sum(less, c), le = sum(lessEq, c);
+					// half of ties
+					final double s = wp[k] * (l + (le - l) * 0.5), w = ((double) wp[k]) * t;
+					num[p][k] += s;
+					den[p][k] += w;
+					boardNum[p] += s;
+					boardDen[p] += w;
+				}
+			}
+			// take them all out again
+			for (int j = 0; j < nq; j++) {
+				final int c = cq[(int) sorted2[j]], w = wq[(int) sorted2[j]];
+				add(total, c, -w);
+				if (j < jl) {
+					add(less, c, -w);
+				}
+				if (j < jle) {
+					add(lessEq, c, -w);
+				}
+			}
+		}
+		
+		/**
+		 * Add weight to the sums of every subset of the cards of the
+		 * combination
+		 */
+		private void add(final long[][] sums, final int c, final long w) {
+			sums[0][0] += w;
+			final int[] sl = subLevel[c], si = subIndex[c];
+			for (int s = 0; s < sl.length; s++) {
+				sums[sl[s]][si[s]] += w;
+			}
+		}
+		
+		/**
+		 * Get the sum of the weights of the combinations that don't share any
+		 * cards with the combination
+		 */
+		private long sum(final long[][] sums, final int c) {
+			long r = sums[0][0];
+			final int[] sl = subLevel[c], si = subIndex[c];
+			for (int s = 0; s < sl.length; s++) {
+				if ((sl[s] & 1) != 0) {
+					r -= sums[sl[s]][si[s]];
+				} else {
+					r += sums[sl[s]][si[s]];
+				}
+			}
+			return r;
+		}
+		
+		/**
+		 * Add the equity shares and weights of every tuple of combinations of
+		 * the ranges from p onwards that don't share cards
+		 */
+		private void tuples(final int p, final long used, final double weight) {
+			if (p == ranges.length) {
+				int max = 0, winners = 0;
+				for (int i = 0; i < p; i++) {
+					if (chosenVals[i] > max) {
+						max = chosenVals[i];
+						winners = 1;
+					} else if (chosenVals[i] == max) {
+						winners++;
+					}
+				}
+				for (int i = 0; i < p; i++) {
+					final double s = chosenVals[i] == max ? weight / winners : 0;
+					num[i][chosen[i]] += s;
+					den[i][chosen[i]] += weight;
+					boardNum[i] += s;
+					boardDen[i] += weight;
+				}
+				return;
+			}
+			final int[] ci = comboIndex[p], w = weights[p];
+			for (int n = 0; n < ci.length; n++) {
+				final int c = ci[n];
+				if (vals[c] >= 0 && (masks[c] & used) == 0) {
+					chosen[p] = n;
+					chosenVals[p] = vals[c];
+					tuples(p + 1, used | masks[c], weight * w[n]);
+				}
+			}
+		}
+	}
+
+}
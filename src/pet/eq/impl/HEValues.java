@@ -0,0 +1,165 @@
+package pet.eq.impl;
+
+import pet.eq.*;
+
+/**
+ * High and optionally low values of every hand for one complete board at a
+ * time, preparing the board once for all the hands: the suits of the board
+ * card mask for hold'em, the board triples for omaha, and otherwise the
+ * combinations of board cards each hand can use. Not thread safe.
+ * <p>
+ * For hold'em with the card mask valuation and for omaha, consecutive boards
+ * that only differ in the last card share the preparation of each hand with
+ * the first four board cards, so each board only adds one card.
+ */
+class HEValues {
+	
+	private final Value hi, lo;
+	private final int[][] holeCards;
+	private final long[] holeMasks;
+	/** minimum number of hole cards to use */
+	private final int min;
+	/** use the card mask valuation for hold'em high and low */
+	private final boolean maskHi, maskLo;
+	/** omaha valuation for omaha high and low in one pass */
+	private final OmahaValue omahaValue;
+	/** combinations of 5 - n board cards for each n hole cards, for other values */
+	private final int[][][] boardCombos;
+	/** number of board combinations for each n hole cards */
+	private final int[] boardCount = new int[3];
+	private final int[] temp = new int[5];
+	/** can value boards incrementally */
+	private final boolean incremental;
+	/** hands prepared with first four board cards for mask valuation */
+	private final int[] hiPrefixes, loPrefixes;
+	/** has a prefix been prepared */
+	private boolean prefixed;
+	
+	/**
+	 * Create valuation of the hole cards with the high and low value
+	 * functions, low may be null
+	 */
+	public HEValues(boolean omaha, Value hi, Value lo, int[][] holeCards) {
+		this.hi = hi;
+		this.lo = lo;
+		this.holeCards = holeCards;
+		this.min = omaha ? 2 : 0;
+		this.holeMasks = new long[holeCards.length];
+		for (int n = 0; n < holeCards.length; n++) {
+			holeMasks[n] = Poker.cardsMask(holeCards[n]);
+		}
+		maskHi = !omaha && hi == Value.hiValue;
+		maskLo = !omaha && lo == Value.afLow8Value;
+		omahaValue = omaha && hi == Value.hiValue && (lo == null || lo == Value.afLow8Value) ? new OmahaValue(holeCards) : null;
+		incremental = omahaValue != null || (maskHi && (lo == null || maskLo));
+		hiPrefixes = maskHi ? new int[holeCards.length * MaskValue.PREFIX] : null;
+		loPrefixes = maskLo ? new int[holeCards.length] : null;
+		boardCombos = new int[3][][];
+		for (int n = min; n <= 2; n++) {
+			boardCombos[n] = new int[MathsUtil.binomialCoefficientFast(5, 5 - n)][5 - n];
+		}
+	}
+	
+	/**
+	 * Get the high values, and if lovals is not null the low values, of each
+	 * hand with the 5 card board, where the cards of the board before the
+	 * changed position are the same as the last call. Low values must be
+	 * requested on every call or none.
+	 */
+	public void values(final int[] board, final int changed, final int[] hivals, final int[] lovals) {
+		if (!incremental) {
+			values(board, hivals, lovals);
+			return;
+		}
+		
+		if (changed < 4 || !prefixed) {
+			// prepare the first four cards
+			if (omahaValue != null) {
+				omahaValue.setPrefix(board, lovals != null);
+			} else {
+				final long prefixMask = Poker.cardMask(board[0]) | Poker.cardMask(board[1]) | Poker.cardMask(board[2]) | Poker.cardMask(board[3]);
+				MaskValue.hiPrefixes(prefixMask, holeMasks, hiPrefixes);
+				if (lovals != null) {
+					MaskValue.afLow8Prefixes(prefixMask, holeMasks, loPrefixes);
+				}
+			}
+			prefixed = true;
+		}
+		
+		if (omahaValue != null) {
+			omahaValue.values(board[4], hivals, lovals);
+		} else {
+			MaskValue.hiValues(hiPrefixes, board[4], hivals);
+			if (lovals != null) {
+				MaskValue.afLow8Values(loPrefixes, board[4], lovals);
+			}
+		}
+	}
+	
+	/**
+	 * Get the high values, and if lovals is not null the low values, of each
+	 * hand with the 5 card board
+	 */
+	public void values(final int[] board, final int[] hivals, final int[] lovals) {
+		if (omahaValue != null) {
+			// both at once
+			omahaValue.setBoard(board);
+			omahaValue.values(hivals, lovals);
+			return;
+		}
+		
+		final long boardMask = maskHi || maskLo ? Poker.cardsMask(board) : 0;
+		if (!maskHi || (lovals != null && !maskLo)) {
+			// board combinations for other values
+			for (int n = min; n <= 2; n++) {
+				final int nb = MathsUtil.binomialCoefficientFast(board.length, 5 - n);
+				for (int kb = 0; kb < nb; kb++) {
+					MathsUtil.kCombination(5 - n, kb, board, boardCombos[n][kb], 0);
+				}
+				boardCount[n] = nb;
+			}
+		}
+		
+		if (maskHi) {
+			MaskValue.hiValues(boardMask, holeMasks, hivals);
+		} else {
+			values(hi, hivals);
+		}
+		if (lovals != null) {
+			if (maskLo) {
+				MaskValue.afLow8Values(boardMask, holeMasks, lovals);
+			} else {
+				values(lo, lovals);
+			}
+		}
+	}
+	
+	/**
+	 * Get the value of each hand using the prepared board combinations, i.e.
+	 * the best of each combination of at least min hole cards with the rest
+	 * from the board
+	 */
+	private void values(final Value v, final int[] vals) {
+		for (int i = 0; i < holeCards.length; i++) {
+			final int[] hole = holeCards[i];
+			int hv = 0;
+			for (int n = min; n <= 2; n++) {
+				final int nh = MathsUtil.binomialCoefficientFast(hole.length, n);
+				final int nb = boardCount[n];
+				final int[][] bc = boardCombos[n];
+				for (int kh = 0; kh < nh; kh++) {
+					MathsUtil.kCombination(n, kh, hole, temp, 0);
+					for (int kb = 0; kb < nb; kb++) {
+						System.arraycopy(bc[kb], 0, temp, n, 5 - n);
+						final int val = v.value(temp);
+						if (val > hv) {
+							hv = val;
+						}
+					}
+				}
+			}
+			vals[i] = hv;
+		}
+	}
+
+}
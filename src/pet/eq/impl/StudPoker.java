@@ -1,6 +1,7 @@
 package pet.eq.impl;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import pet.eq.*;
 
@@ -9,8 +10,12 @@ import pet.eq.*;
  */
 public class StudPoker extends Poker {
 	
-	private final String[] tempHand = new String[5];
-	private final String[] tempHoleCards = new String[7];
+	/**
+	 * maximum number of hand valuations for exact equity, otherwise use
+	 * samples, the same for any number of threads
+	 */
+	private static final double EXACT_EVALS = 2000000;
+	
 	private final boolean hilo;
 	
 	public StudPoker(Value value, boolean hilo) {
@@ -20,8 +25,9 @@ public class StudPoker extends Poker {
 	
 	/** 
 	 * passes 3-7 card hands and convert 6+1 card hands into 7 card hands
+	 * (integer cards)
 	 */
-	private String[] merge(final String[] board, final String[] holeCards, final boolean create) {
+	private static int[] merge(final int[] board, final int[] holeCards) {
 		// validate
 		if (board != null && board.length > 1) {
 			throw new RuntimeException("invalid board");
@@ -33,7 +39,7 @@ public class StudPoker extends Poker {
 		
 		if (board != null && board.length > 0) {
 			// join board and hand
-			final String[] newHoleCards = create ? new String[holeCards.length + 1] : tempHoleCards;
+			final int[] newHoleCards = new int[holeCards.length + 1];
 			for (int n = 0; n < holeCards.length; n++) {
 				newHoleCards[n] = holeCards[n];
 			}
@@ -46,16 +52,23 @@ public class StudPoker extends Poker {
 	}
 	
 	/**
-	 * return value of 7 card stud hand
+	 * return value of 7 card stud hand, using the 5 card temp array
 	 */
-	private int studValue(final Value val, final String[] hand) {
+	private static int studValue(final Value val, final int[] hand, final int[] temp) {
 		int maxv = 0;
-		if (hand.length >= 5) {
+		if (val == Value.hiValue && hand.length >= 5 && hand.length <= 7) {
+			// any 5 of the cards
+			maxv = MaskValue.hiValue(Poker.cardsMask(hand));
+			
+		} else if (val == Value.afLow8Value && hand.length <= 7) {
+			maxv = MaskValue.afLow8Value(Poker.cardsMask(hand));
+			
+		} else if (hand.length >= 5) {
 			// pick best 5 card hand
 			final int positions = MathsUtil.binomialCoefficientFast(hand.length, 5);
 			for (int p = 0; p < positions; p++) {
-				MathsUtil.kCombination(5, p, hand, tempHand, 0);
-				final int v = val.value(tempHand);
+				MathsUtil.kCombination(5, p, hand, temp, 0);
+				final int v = val.value(temp);
 				if (v > maxv) {
 					maxv = v;
 				}
@@ -64,28 +77,50 @@ public class StudPoker extends Poker {
 		return maxv;
 	}
 	
+	/**
+	 * set value and if hi/lo, the ace to five 8 or better low value of 7 card
+	 * stud hand for player n. values both from one card mask if possible.
+	 * return true if the hand has a low value.
+	 */
+	private boolean studValues(final int[] hand, final int n, final int[] hivals, final int[] lovals, final int[] temp) {
+		if (hilo && value == Value.hiValue && hand.length >= 5 && hand.length <= 7) {
+			final long mask = Poker.cardsMask(hand);
+			hivals[n] = MaskValue.hiValue(mask);
+			lovals[n] = MaskValue.afLow8Value(mask);
+			
+		} else {
+			hivals[n] = studValue(value, hand, temp);
+			if (hilo) {
+				lovals[n] = studValue(Value.afLow8Value, hand, temp);
+			}
+		}
+		return hilo && lovals[n] > 0;
+	}
+	
 	@Override
-	public synchronized MEquity[] equity(final String[] board, final String[][] holeCardsOrig, final String[] blockers, final int draws) {
+	public MEquity[] equity(final String[] board, final String[][] holeCardsOrig, final String[] blockers, final int draws) {
 		if (draws != 0) {
 			throw new RuntimeException("invalid draws: " + draws);
 		}
-		System.out.println("stud sample equity: " + Arrays.deepToString(holeCardsOrig) + " board " + Arrays.toString(board) + " blockers " + Arrays.toString(blockers));
+		System.out.println("stud equity: " + Arrays.deepToString(holeCardsOrig) + " board " + Arrays.toString(board) + " blockers " + Arrays.toString(blockers));
 		
 		// note: hole cards may be mixed length
 		
 		// remaining cards in deck
 		// use original cards so none are duplicated
-		final String[] deck = Poker.remdeck(holeCardsOrig, blockers, board);
+		// convert to integer cards once, all valuation is done with them
+		final int[] deck = Poker.intCards(Poker.remdeck(holeCardsOrig, blockers, board));
+		final int[] boardInt = Poker.intCards(board);
 		
 		// merge board with hole cards
-		final String[][] holeCards = new String[holeCardsOrig.length][];
+		final int[][] holeCards = new int[holeCardsOrig.length][];
 		int nonblanks = 0;
 		if (board != null && board.length > 0) {
 			nonblanks++;
 		}
 		for (int n = 0; n < holeCardsOrig.length; n++) {
 			nonblanks += holeCardsOrig[n].length;
-			holeCards[n] = merge(board, holeCardsOrig[n], true);
+			holeCards[n] = merge(boardInt, Poker.intCards(holeCardsOrig[n]));
 		}
 		
 		// how many cards do we need to pick
@@ -98,18 +133,35 @@ public class StudPoker extends Poker {
 		}
 		
 		//System.out.println("deck: " + deck.length + " nonblanks: " + nonblanks + " blanks: " + blanks);
-		//BigInteger combs = MathsUtil.bincoffslow(deck.length, blanks);
-		// XXX if this is less than ~50k, should ideally do exact enumeration of combs and perms 
-		// though with 4 or more blanks it tends to be much higher
-		//BigInteger combperms = MathsUtil.facslow(blanks).multiply(combs);
-		//System.out.println("combs: " + combs + " combperms: " + combperms);
+		
+		// the blank card positions, community card first if any
+		final boolean comm = holeCards.length >= 8 && hasBlank(holeCards, 6);
+		final int slots = blanks(holeCards, comm, null, null);
+		final int[] slotHand = new int[slots], slotPos = new int[slots];
+		blanks(holeCards, comm, slotHand, slotPos);
+		
+		// number of distinct ways of dealing the remaining cards, times number
+		// of hand valuations (all hands in one mask if possible)
+		double outcomes = 1;
+		for (int s = 0, rem = deck.length; s < slots; s++, rem--) {
+			// number of cards left for this hand (or community card)
+			int k = 1;
+			while (s + k < slots && slotHand[s + k] == slotHand[s]) {
+				k++;
+			}
+			outcomes *= MathsUtil.binomialCoefficientFast(rem, k);
+			rem -= k - 1;
+			s += k - 1;
+		}
+		final boolean fast = (value == Value.hiValue || value == Value.afLow8Value) && (!hilo || value == Value.hiValue);
+		final boolean exact = outcomes * holeCards.length * (fast ? 1 : 21) <= EXACT_EVALS;
 		
 		// return value
 		final MEquity[] meqs;
 		if (hilo) {
-			meqs = MEquityUtil.createMEquitiesHL(true, holeCards.length, deck.length, false);
+			meqs = MEquityUtil.createMEquitiesHL(true, holeCards.length, deck.length, exact);
 		} else {
-			meqs = MEquityUtil.createMEquities(value.eqtype, holeCards.length, deck.length, false);
+			meqs = MEquityUtil.createMEquities(value.eqtype, holeCards.length, deck.length, exact);
 		}
 		
 		// get current hand values (not equity)
@@ -119,15 +171,11 @@ public class StudPoker extends Poker {
 		
 		// get current values
 		boolean hasLow = false;
+		final int[] temp = new int[5];
 		for (int n = 0; n < holeCards.length; n++) {
 			// returns 0 if less than 5 cards
-			hivals[n] = studValue(value, holeCards[n]);
-			if (hilo) {
-				int lv = studValue(Value.afLow8Value, holeCards[n]);
-				lovals[n] = lv;
-				if (lv > 0) {
-					hasLow = true;
-				}
+			if (studValues(holeCards[n], n, hivals, lovals, temp)) {
+				hasLow = true;
 			}
 		}
 		
@@ -138,90 +186,283 @@ public class StudPoker extends Poker {
 			MEquityUtil.updateCurrent(meqs, Equity.Type.HILO_AFLO8_HALF, lovals);
 		}
 		
-		final int samples;
-		// how many hands had lo
-		int lowCount = 0;
+		final MEquityCounts counts = new MEquityCounts(meqs);
 		
-		if (blanks == 0) {
+		if (slots == 0) {
 			System.out.println("no blanks, using current values");
-			samples = 1;
 			
 			// no blank cards, just use current as only sample
 			if (hasLow) {
-				lowCount = 1;
-				MEquityUtil.updateMEquitiesHL(meqs, hivals, lovals, null);
+				counts.updateHL(hivals, lovals, null);
 				
 			} else {
-				MEquityUtil.updateMEquities(meqs, value.eqtype, hivals, null);
+				counts.update(value.eqtype, hivals, null);
+			}
+			
+		} else if (exact) {
+			// all remaining cards, with each card for the first blank in a different task
+			final SamplePolicy policy = policy();
+			final List<ExactTask> tasks = new ArrayList<ExactTask>();
+			for (int n = 0; n < deck.length; n++) {
+				tasks.add(new ExactTask(deck, holeCards, slotHand, slotPos, n, meqs, policy));
+			}
+			for (MEquityCounts c : ThreadUtil.invokeAll(tasks)) {
+				counts.add(c);
 			}
+			System.out.println("blanks: " + blanks + ", enumerated " + counts.getCount() + " outcomes");
 			
 		} else {
-			final Random r = new Random();
-			samples = 10000;
-			System.out.println("blanks: " + blanks + ", using " + samples + " samples");
+			final SamplePolicy policy = policy();
+			final long start = System.nanoTime();
+			
+			// each thread has its own deck and random numbers
+			final SplitRandom r = random();
+			final List<SampleTask> tasks = new ArrayList<SampleTask>();
+			for (int n = 0; n < ThreadUtil.getParallelism(); n++) {
+				tasks.add(new SampleTask(deck.clone(), holeCards, comm, slots, r.split(), meqs));
+			}
 			
 			// sample remaining cards, but exact enumeration might be not be very big
-			for (int s = 0; s < samples; s++) {
-				// shuffle instead of pick, as stud tends to use most of the deck
-				ArrayUtil.shuffle(deck, r);
-				int di = 0;
-				String commCard = null;
-				if (holeCards.length >= 8) {
-					commCard = deck[di++];
+			int samples;
+			while ((samples = policy.next(counts, start, SamplePolicy.BATCH * tasks.size())) > 0) {
+				// split samples between tasks, about a batch each
+				for (int n = 0; n < tasks.size(); n++) {
+					tasks.get(n).samples = (samples * (n + 1)) / tasks.size() - (samples * n) / tasks.size();
 				}
-				hasLow = false;
-				
-				for (int n = 0; n < holeCards.length; n++) {
-					// hole cards could be any length, copy to temp
-					for (int c = 0; c < 7; c++) {
-						if (holeCards[n].length > c) {
-							tempHoleCards[c] = holeCards[n][c];
-							
-						} else if (commCard == null || c < 6) {
-							// pick one from shuffled deck
-							tempHoleCards[c] = deck[di++];
-							
-						} else {
-							// use community card for last card
-							tempHoleCards[c] = commCard;
-						}
-					}
-					
-					hivals[n] = studValue(value, tempHoleCards);
-					if (hilo) {
-						int lv = studValue(Value.afLow8Value, tempHoleCards);
-						// always assign this as any of them could be low
-						lovals[n] = lv;
-						if (lv > 0) {
-							hasLow = true;
-						}
+				for (MEquityCounts c : ThreadUtil.invokeAll(tasks)) {
+					counts.add(c);
+				}
+			}
+			System.out.println("blanks: " + blanks + ", used " + counts.getCount() + " samples");
+		}
+		
+		counts.summarise(meqs);
+		return meqs;
+	}
+	
+	/**
+	 * Does any hand not have a card at the given position
+	 */
+	private static boolean hasBlank(final int[][] holeCards, final int pos) {
+		for (int[] hole : holeCards) {
+			if (hole.length <= pos) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Get the number of blank card positions of the hands, and if the arrays
+	 * are not null, the hand (or -1 for the community card) and position in
+	 * the hand of each, community card first, then in order of hand
+	 */
+	private static int blanks(final int[][] holeCards, final boolean comm, final int[] slotHand, final int[] slotPos) {
+		int s = 0;
+		if (comm) {
+			if (slotHand != null) {
+				slotHand[s] = -1;
+				slotPos[s] = 6;
+			}
+			s++;
+		}
+		for (int n = 0; n < holeCards.length; n++) {
+			for (int c = holeCards[n].length; c < (comm ? 6 : 7); c++) {
+				if (slotHand != null) {
+					slotHand[s] = n;
+					slotPos[s] = c;
+				}
+				s++;
+			}
+		}
+		return s;
+	}
+	
+	/**
+	 * All deals of the remaining cards of the hands with the given card for
+	 * the first blank, for one thread
+	 */
+	private class ExactTask implements Callable<MEquityCounts> {
+		private final int[] deck;
+		/** 7 card hands including the blanks */
+		private final int[][] hands;
+		private final int[] slotHand, slotPos;
+		/** index of deck card for first blank */
+		private final int first;
+		private final MEquity[] meqs;
+		/** policy of the calling thread, for cancellation */
+		private final SamplePolicy policy;
+		/** deck cards used */
+		private final boolean[] used;
+		private final int[] hivals;
+		private final int[] lovals;
+		private final int[] temp = new int[5];
+		private MEquityCounts counts;
+		
+		public ExactTask(int[] deck, int[][] holeCards, int[] slotHand, int[] slotPos, int first, MEquity[] meqs, SamplePolicy policy) {
+			this.deck = deck;
+			this.slotHand = slotHand;
+			this.slotPos = slotPos;
+			this.first = first;
+			this.meqs = meqs;
+			this.policy = policy;
+			this.used = new boolean[deck.length];
+			this.hands = new int[holeCards.length][7];
+			for (int n = 0; n < holeCards.length; n++) {
+				System.arraycopy(holeCards[n], 0, hands[n], 0, holeCards[n].length);
+			}
+			this.hivals = new int[holeCards.length];
+			this.lovals = hilo ? new int[holeCards.length] : null;
+		}
+		
+		@Override
+		public MEquityCounts call() {
+			policy.check();
+			counts = new MEquityCounts(meqs);
+			used[first] = true;
+			set(0, deck[first]);
+			enumerate(1, first + 1);
+			return counts;
+		}
+		
+		/**
+		 * put the card in the blank
+		 */
+		private void set(final int s, final int card) {
+			final int h = slotHand[s];
+			if (h >= 0) {
+				hands[h][slotPos[s]] = card;
+			} else {
+				for (int n = 0; n < hands.length; n++) {
+					hands[n][6] = card;
+				}
+			}
+		}
+		
+		/**
+		 * fill the given blank and the ones after it with every combination of
+		 * unused cards, cards for the same hand in deck order starting from
+		 * the given deck index
+		 */
+		private void enumerate(final int s, final int from) {
+			if (s == slotHand.length) {
+				boolean hasLow = false;
+				for (int n = 0; n < hands.length; n++) {
+					if (studValues(hands[n], n, hivals, lovals, temp)) {
+						hasLow = true;
 					}
 				}
-				
-				// TODO count outs, but currently can only handle shared (board) outs
-				// and with sample, won't be very accurate anyway
-				
 				if (hasLow) {
-					lowCount++;
-					MEquityUtil.updateMEquitiesHL(meqs, hivals, lovals, null);
-					
+					counts.updateHL(hivals, lovals, null);
 				} else {
-					// high winner only
-					MEquityUtil.updateMEquities(meqs, value.eqtype, hivals, null);
+					counts.update(value.eqtype, hivals, null);
 				}
+				return;
 			}
 			
+			for (int d = slotHand[s] == slotHand[s - 1] ? from : 0; d < deck.length; d++) {
+				if (!used[d]) {
+					used[d] = true;
+					set(s, deck[d]);
+					enumerate(s + 1, d + 1);
+					used[d] = false;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Samples of the remaining cards of the hands for one thread
+	 */
+	private class SampleTask implements Callable<MEquityCounts> {
+		private final int[] deck;
+		private final int[][] holeCards;
+		private final boolean comm;
+		private final int picks;
+		private final Random r;
+		private final MEquity[] meqs;
+		private final int[] hivals;
+		private final int[] lovals;
+		private final int[] temp = new int[5];
+		private final int[] tempHoleCards = new int[7];
+		/** number of samples for next call */
+		int samples;
+		
+		public SampleTask(int[] deck, int[][] holeCards, boolean comm, int picks, Random r, MEquity[] meqs) {
+			this.deck = deck;
+			this.holeCards = holeCards;
+			this.comm = comm;
+			this.picks = picks;
+			this.r = r;
+			this.meqs = meqs;
+			this.hivals = new int[holeCards.length];
+			this.lovals = hilo ? new int[holeCards.length] : null;
 		}
 		
-		MEquityUtil.summariseMEquities(meqs, samples, lowCount);
-		return meqs;
+		@Override
+		public MEquityCounts call() {
+			final MEquityCounts counts = new MEquityCounts(meqs);
+			sample(deck, holeCards, comm, picks, r, samples, hivals, lovals, temp, tempHoleCards, counts);
+			return counts;
+		}
+	}
+	
+	/**
+	 * Count the given number of samples of the remaining cards of the hands,
+	 * where picks is the number of cards to deal, including the community card
+	 * if any
+	 */
+	private void sample(final int[] deck, final int[][] holeCards, final boolean comm, final int picks, final Random r, final int samples, final int[] hivals, final int[] lovals, final int[] temp, final int[] tempHoleCards, final MEquityCounts counts) {
+		for (int s = 0; s < samples; s++) {
+			// only shuffle the cards that are dealt
+			ArrayUtil.shuffle(deck, picks, r);
+			int di = 0;
+			int commCard = -1;
+			if (comm) {
+				commCard = deck[di++];
+			}
+			boolean hasLow = false;
+			
+			for (int n = 0; n < holeCards.length; n++) {
+				// hole cards could be any length, copy to temp
+				for (int c = 0; c < 7; c++) {
+					if (holeCards[n].length > c) {
+						tempHoleCards[c] = holeCards[n][c];
+						
+					} else if (commCard == -1 || c < 6) {
+						// pick one from shuffled deck
+						tempHoleCards[c] = deck[di++];
+						
+					} else {
+						// use community card for last card
+						tempHoleCards[c] = commCard;
+					}
+				}
+				
+				// always assigns low value as any of them could be low
+				if (studValues(tempHoleCards, n, hivals, lovals, temp)) {
+					hasLow = true;
+				}
+			}
+			
+			// TODO count outs, but currently can only handle shared (board) outs
+			// and with sample, won't be very accurate anyway
+			
+			if (hasLow) {
+				counts.updateHL(hivals, lovals, null);
+				
+			} else {
+				// high winner only
+				counts.update(value.eqtype, hivals, null);
+			}
+		}
 	}
 	
 	@Override
-	public synchronized int value(String[] board, String[] cards) {
+	public int value(String[] board, String[] cards) {
 		// only does one value type...
 		if (cards.length >= 5) {
-			return studValue(value, merge(board, cards, false));
+			return studValue(value, merge(Poker.intCards(board), Poker.intCards(cards)), new int[5]);
 		} else {
 			return 0;
 		}
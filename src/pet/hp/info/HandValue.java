@@ -1,6 +1,6 @@
 package pet.hp.info;
 
-import pet.eq.Poker;
+import pet.eq.ValueIndex;
 
 /** represents a hand value */
 public class HandValue implements Comparable<HandValue> {
@@ -10,7 +10,7 @@ public class HandValue implements Comparable<HandValue> {
 	}
 	@Override
 	public String toString() {
-		return v != 0 ? Poker.valueString(v) : null;
+		return v != 0 ? ValueIndex.valueString(v) : null;
 	}
 	@Override
 	public int compareTo(HandValue r) {
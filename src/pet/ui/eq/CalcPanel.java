@@ -8,6 +8,7 @@ import java.util.List;
 
 import javax.swing.*;
 
+import pet.PET;
 import pet.eq.*;
 
 /**
@@ -64,6 +65,52 @@ public abstract class CalcPanel extends JPanel {
 		}
 	}
 
+	/** card button card changed listener, abandons the calculation */
+	private final class CardChangedPCL implements PropertyChangeListener {
+		
+		@Override
+		public void propertyChange(PropertyChangeEvent e) {
+			cancelCalc();
+		}
+	}
+	
+	/** receives equities of the running calculation, displays them in the event thread */
+	private final class CalcListener implements EquityFuture.Listener {
+		
+		private final List<HandCardPanel> cardPanels;
+		
+		public CalcListener(List<HandCardPanel> cardPanels) {
+			this.cardPanels = cardPanels;
+		}
+		
+		@Override
+		public void equityUpdated(final EquityFuture f, final MEquity[] meqs, final boolean done) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					if (f != equityFuture) {
+						// stale
+						return;
+					}
+					if (done) {
+						equityFuture = null;
+					}
+					if (meqs != null) {
+						for (int n = 0; n < meqs.length; n++) {
+							cardPanels.get(n).setEquity(meqs[n]);
+						}
+					} else {
+						try {
+							f.get();
+						} catch (Exception e) {
+							PET.handleException("Equity", e.getCause() != null ? e.getCause() : e);
+						}
+					}
+				}
+			});
+		}
+	}
+	
 	/** card button key listener */
 	private final class CardKL extends KeyAdapter {
 		
@@ -165,6 +212,8 @@ public abstract class CalcPanel extends JPanel {
 	private final List<CardButton> cardButtons = new ArrayList<>();
 	private final JComboBox<PokerItem> pokerCombo = new JComboBox<>();
 	private final JSpinner drawsSpinner;
+	/** the running equity calculation, if any (event thread only) */
+	private EquityFuture equityFuture;
 	
 	// protected to allow access by subclasses
 	protected HandCardPanel[] handCardPanels;
@@ -341,6 +390,7 @@ public abstract class CalcPanel extends JPanel {
 			b.setName("Hand-" + n);
 			b.addActionListener(new CardAL());
 			b.addKeyListener(new CardKL());
+			b.addPropertyChangeListener(CardButton.CARD_PROP_CHANGE, new CardChangedPCL());
 		}
 	}
 	
@@ -433,8 +483,9 @@ public abstract class CalcPanel extends JPanel {
 		System.out.println("hands: " + hands.size());
 	}
 	
-	/** calc button pressed */
+	/** calc button pressed, start calculating in the background */
 	protected void calc() {
+		cancelCalc();
 		for (HandCardPanel hp : handCardPanels) {
 			hp.setEquity(null);
 		}
@@ -456,12 +507,16 @@ public abstract class CalcPanel extends JPanel {
 			draws = ((SpinnerNumberModel) drawsSpinner.getModel()).getNumber().intValue();
 		}
 		
-		final MEquity[] meqs = pokerItem.poker.equity(board, cards, blockers, draws);
-		
-		for (int n = 0; n < meqs.length; n++) {
-			cardPanels.get(n).setEquity(meqs[n]);
+		equityFuture = pokerItem.poker.equityAsync(board, cards, blockers, draws, 0, new CalcListener(cardPanels));
+	}
+	
+	/** abandon the running calculation, if any */
+	protected void cancelCalc() {
+		if (equityFuture != null) {
+			System.out.println("calc panel cancel calc");
+			equityFuture.cancel(false);
+			equityFuture = null;
 		}
-		
 	}
 	
 	/** hide the cards in the deck. subclass should also hide opponents hole card */
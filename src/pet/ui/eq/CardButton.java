@@ -11,6 +11,9 @@ import pet.eq.*;
  */
 class CardButton extends JToggleButton {
 	
+	/** property change fired when the card is set or removed */
+	public static final String CARD_PROP_CHANGE = "card";
+	
 	public static final Font cardfont = new Font("SansSerif", Font.PLAIN, 24);
 	
 	private String card;
@@ -41,8 +44,10 @@ class CardButton extends JToggleButton {
 	
 	public void setCard(String card) {
 		//System.out.println("card button " + getName() + " set card " + card);
+		String old = this.card;
 		this.card = card;
 		update();
+		firePropertyChange(CARD_PROP_CHANGE, old, card);
 	}
 	
 	public String getCard() {
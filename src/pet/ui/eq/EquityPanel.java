@@ -51,7 +51,7 @@ class EquityPanel extends JPanel {
 		equityLab.setText(et);
 		
 		valueLab.setFont(font);
-		valueLab.setText(e.current > 0 ? Poker.valueString(e.current) : "");
+		valueLab.setText(e.current > 0 ? ValueIndex.valueString(e.current) : "");
 		
 		revalidate();
 	}